@@ -100,8 +100,7 @@ public class AddRemoveCommand extends Command {
             return false;
         } else {
             Blob blob = contents.get(filename);
-            byte[] fileContent = readContents(toDo);
-            return Arrays.equals(fileContent, blob.getContents());
+            return blob.matches(toDo);
         }
     }
 }
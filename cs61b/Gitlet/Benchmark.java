@@ -0,0 +1,244 @@
+package gitlet;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static gitlet.Utils.*;
+
+/** Benchmarks of the core commands on a synthetic repository, in the
+ *  manner of JMH: each operation is warmed up, then timed over a number
+ *  of iterations, one full command (open, run, save) per iteration, with
+ *  untimed setup and teardown around it. Usage, from an empty directory:
+ *
+ *      java gitlet.Benchmark [--files N] [--size BYTES] [--depth N]
+ *          [--branches N] [--merge-every N] [--warmup N]
+ *          [--iterations N] [--baseline FILE] [--write-baseline FILE]
+ *          [--tolerance RATIO]
+ *
+ *  Results are printed as JSON. With --baseline, an operation whose mean
+ *  time exceeds its baseline by more than the tolerance is reported as a
+ *  regression and the exit status is 1.
+ * @author taoxinyyyun
+ */
+public class Benchmark {
+
+    /** An operation to time. */
+    private interface Op {
+        /** Prepare an iteration; not timed. */
+        default void setup() {
+        }
+
+        /** The timed part. */
+        void run();
+
+        /** Clean up after an iteration; not timed. */
+        default void teardown() {
+        }
+    }
+
+    /** Nanoseconds in a millisecond. */
+    private static final double MILLIS = 1e6;
+
+    /** Matches one operation of a results file. */
+    private static final Pattern RESULT =
+            Pattern.compile("\"([\\w-]+)\":\\{\"meanMs\":([\\d.]+)");
+
+    /** Run the benchmarks.
+     * @param args the options above */
+    public static void main(String... args) {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            opts.put(args[i], args[i + 1]);
+        }
+        int files = Integer.parseInt(opts.getOrDefault("--files", "200"));
+        int size = Integer.parseInt(opts.getOrDefault("--size", "512"));
+        int depth = Integer.parseInt(opts.getOrDefault("--depth", "20"));
+        int branches = Integer.parseInt(opts.getOrDefault("--branches",
+                "3"));
+        int mergeEvery = Integer.parseInt(opts.getOrDefault("--merge-every",
+                "5"));
+        int warmup = Integer.parseInt(opts.getOrDefault("--warmup", "5"));
+        int iterations = Integer.parseInt(opts.getOrDefault("--iterations",
+                "20"));
+        double tolerance = Double.parseDouble(opts.getOrDefault(
+                "--tolerance", "1.25"));
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        SyntheticRepo synthetic = new SyntheticRepo(files, size, depth,
+                branches, mergeEvery);
+        long start = System.nanoTime();
+        synthetic.generate();
+        double generated = (System.nanoTime() - start) / MILLIS;
+
+        LinkedHashMap<String, double[]> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Op> op : ops(synthetic).entrySet()) {
+            results.put(op.getKey(), measure(op.getValue(), warmup,
+                    iterations));
+        }
+        System.setOut(out);
+
+        String json = toJson(results);
+        System.out.println("{\"generateMs\":" + format(generated)
+                + ",\"results\":" + json + "}");
+        if (opts.containsKey("--write-baseline")) {
+            writeContents(new File(opts.get("--write-baseline")),
+                    json + "\n");
+        }
+        if (opts.containsKey("--baseline")) {
+            File baseline = new File(opts.get("--baseline"));
+            if (!baseline.exists()) {
+                System.out.println("No baseline at " + baseline
+                        + "; record one with --write-baseline.");
+            } else if (!compare(readContentsAsString(baseline), results,
+                    tolerance)) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /** Return the operations to time on the repository built by
+     *  SYNTHETIC, in the order they are run.
+     * @param synthetic the generator of the repository
+     * @return the operations, by name */
+    private static LinkedHashMap<String, Op> ops(SyntheticRepo synthetic) {
+        LinkedHashMap<String, Op> ops = new LinkedHashMap<>();
+        String file = SyntheticRepo.fileName(0);
+        String other = SyntheticRepo.branchName(1);
+        ops.put("add", new Op() {
+            public void setup() {
+                synthetic.writeFile(0);
+            }
+            public void run() {
+                SyntheticRepo.run("add", file);
+            }
+        });
+        int[] commits = {0};
+        ops.put("commit", new Op() {
+            public void setup() {
+                synthetic.writeFile(0);
+                SyntheticRepo.run("add", file);
+            }
+            public void run() {
+                SyntheticRepo.run("commit", "benchmark " + commits[0]++);
+            }
+        });
+        ops.put("checkout", new Op() {
+            public void run() {
+                SyntheticRepo.run("checkout", other);
+            }
+            public void teardown() {
+                SyntheticRepo.run("checkout", "master");
+            }
+        });
+        String[] head = new String[1];
+        ops.put("merge", new Op() {
+            public void setup() {
+                head[0] = Repository.open(new File(".gitlet/"))
+                        .getBranches().get("master");
+            }
+            public void run() {
+                SyntheticRepo.run("merge", other);
+            }
+            public void teardown() {
+                SyntheticRepo.run("reset", head[0]);
+            }
+        });
+        ops.put("log", () -> SyntheticRepo.run("log"));
+        ops.put("find", () -> SyntheticRepo.run("find", "master 1"));
+        ops.put("status", () -> SyntheticRepo.run("status"));
+        return ops;
+    }
+
+    /** Time OP over ITERATIONS iterations after WARMUP untimed ones.
+     * @param op the operation
+     * @param warmup iterations to discard
+     * @param iterations iterations to time
+     * @return the time of each timed iteration, in milliseconds, sorted */
+    private static double[] measure(Op op, int warmup, int iterations) {
+        double[] times = new double[iterations];
+        for (int i = 0; i < warmup + iterations; i++) {
+            op.setup();
+            long start = System.nanoTime();
+            op.run();
+            long end = System.nanoTime();
+            op.teardown();
+            if (i >= warmup) {
+                times[i - warmup] = (end - start) / MILLIS;
+            }
+        }
+        Arrays.sort(times);
+        return times;
+    }
+
+    /** Return RESULTS as JSON, with the mean, median and extremes of each
+     *  operation in milliseconds.
+     * @param results sorted times by operation
+     * @return the JSON object */
+    private static String toJson(Map<String, double[]> results) {
+        StringBuilder json = new StringBuilder("{");
+        String sep = "";
+        for (Map.Entry<String, double[]> result : results.entrySet()) {
+            double[] times = result.getValue();
+            json.append(sep).append('"').append(result.getKey())
+                .append("\":{\"meanMs\":").append(format(mean(times)))
+                .append(",\"p50Ms\":")
+                .append(format(times[times.length / 2]))
+                .append(",\"minMs\":").append(format(times[0]))
+                .append(",\"maxMs\":")
+                .append(format(times[times.length - 1])).append('}');
+            sep = ",";
+        }
+        return json.append('}').toString();
+    }
+
+    /** Compare RESULTS to the results in BASELINE, printing operations
+     *  whose mean is more than TOLERANCE times the baseline's.
+     * @param baseline the contents of a results file
+     * @param results sorted times by operation
+     * @param tolerance the largest acceptable ratio
+     * @return true iff there is no regression */
+    private static boolean compare(String baseline,
+                                   Map<String, double[]> results,
+                                   double tolerance) {
+        ArrayList<String> regressions = new ArrayList<>();
+        Matcher m = RESULT.matcher(baseline);
+        while (m.find()) {
+            double[] times = results.get(m.group(1));
+            double before = Double.parseDouble(m.group(2));
+            if (times != null && mean(times) > before * tolerance) {
+                regressions.add(m.group(1) + ": " + format(mean(times))
+                        + " ms, baseline " + format(before) + " ms");
+            }
+        }
+        for (String regression : regressions) {
+            System.out.println("Regression in " + regression);
+        }
+        return regressions.isEmpty();
+    }
+
+    /** Return the mean of TIMES.
+     * @param times some times
+     * @return their mean */
+    private static double mean(double[] times) {
+        double sum = 0;
+        for (double t : times) {
+            sum += t;
+        }
+        return sum / times.length;
+    }
+
+    /** Return X with three decimal places.
+     * @param x a number
+     * @return its text */
+    private static String format(double x) {
+        return String.format("%.3f", x);
+    }
+}
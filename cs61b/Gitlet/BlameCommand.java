@@ -0,0 +1,84 @@
+package gitlet;
+
+/** A command that attributes each line of a file to the commit that last
+ *  changed it.
+ * @author taoxinyyyun
+ */
+public class BlameCommand extends Command {
+
+    /** the constructor.
+     * @param repository the repository
+     * @param arg the arguments */
+    public BlameCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** Walks first-parent history from the head commit. Versions with the
+     *  same blob as their child are skipped without diffing; otherwise the
+     *  lines still unattributed are mapped into the parent's version, and
+     *  those with no counterpart there are attributed to the child. The
+     *  walk stops as soon as every line is attributed. */
+    public void run() throws GitletException {
+        String fileName = args[1];
+        Commit curr = repo.getHeadCommit();
+        Blob currBlob = curr.getTrackedBlobs().get(fileName);
+        if (currBlob == null) {
+            throw new GitletException("File does not exist in that commit.");
+        }
+        String[] lines = LineDiff.lines(currBlob.getContents());
+        Commit[] owners = new Commit[lines.length];
+        int[] where = new int[lines.length];
+        for (int i = 0; i < where.length; i++) {
+            where[i] = i;
+        }
+        int remaining = lines.length;
+        String[] currLines = lines;
+
+        while (remaining > 0) {
+            String parentCode = curr.getParentSHA1();
+            Commit parent = parentCode == null ? null
+                    : repo.getCommit(parentCode);
+            Blob parentBlob = parent == null ? null
+                    : parent.getTrackedBlobs().get(fileName);
+            if (parentBlob == null) {
+                for (int i = 0; i < where.length; i++) {
+                    if (where[i] >= 0) {
+                        owners[i] = curr;
+                    }
+                }
+                break;
+            }
+            if (parentBlob.getSha1hash().equals(currBlob.getSha1hash())) {
+                curr = parent;
+                continue;
+            }
+            String[] parentLines = LineDiff.lines(parentBlob.getContents());
+            int[] match = LineDiff.match(parentLines, currLines);
+            for (int i = 0; i < where.length; i++) {
+                if (where[i] >= 0) {
+                    where[i] = match[where[i]];
+                    if (where[i] < 0) {
+                        owners[i] = curr;
+                        remaining -= 1;
+                    }
+                }
+            }
+            curr = parent;
+            currBlob = parentBlob;
+            currLines = parentLines;
+        }
+
+        for (int i = 0; i < lines.length; i++) {
+            Commit owner = owners[i];
+            getOut().printf("%s (%s %d) %s%n",
+                    owner.getSHA1().substring(0, 8), owner.getDate(), i + 1,
+                    lines[i]);
+        }
+    }
+}
@@ -1,43 +1,256 @@
 package gitlet;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static gitlet.Utils.sha1;
 import static gitlet.Utils.readContents;
 
-/** Essentially the content of files.
+/** Essentially the content of files. The contents of files larger than
+ *  CHUNK_THRESHOLD are kept as content-defined chunks in the repository's
+ *  chunk store instead of inline, so commits stay small and versions of a
+ *  large file share their unchanged chunks.
  * @author taoxinyyyun
  */
 public class Blob implements Serializable {
+    private static final long serialVersionUID = 9170808684257101953L;
+
+    /** Size above which contents are chunked. */
+    static final long CHUNK_THRESHOLD = Chunker.MAX_SIZE;
 
     /** The SHA1 of this blob. */
     private String sha1hash;
 
-    /** The content of this blob, represented as a byte array. */
+    /** The content of this blob, represented as a byte array, or null if
+     *  it is chunked. */
     private byte[] contents;
 
     /** The name of this blob. */
     private String name;
 
+    /** SHA1 codes of the chunks holding the content, in order, or null if
+     *  the content is inline. */
+    private String[] chunks;
+
+    /** Size of the content, if it is chunked. */
+    private long size;
+
+    /** Where the chunks are read from. */
+    private transient ChunkStore store;
+
     /** Create a new blob from a file.
      * @param f the file
      * @param filename the file's name */
     public Blob(File f, String filename) {
         this.contents = readContents(f);
+        Stats.read(this.contents.length);
+        this.sha1hash = sha1((Object) this.contents);
+        this.name = filename;
+    }
+
+    /** Create a new blob from a file, storing its contents as chunks in
+     *  CHUNKS if it is large.
+     * @param f the file
+     * @param filename the file's name
+     * @param chunkStore the repository's chunk store */
+    public Blob(File f, String filename, ChunkStore chunkStore) {
+        if (f.length() <= CHUNK_THRESHOLD) {
+            this.contents = readContents(f);
+            this.sha1hash = sha1((Object) this.contents);
+        } else {
+            try (InputStream in = new FileInputStream(f)) {
+                MessageDigest md = MessageDigest.getInstance("SHA-1");
+                List<String> codes = chunkStore.putAll(in, md);
+                this.chunks = codes.toArray(new String[0]);
+                this.sha1hash = hex(md.digest());
+                this.size = f.length();
+                this.store = chunkStore;
+            } catch (IOException | NoSuchAlgorithmException e) {
+                throw new GitletException("Could not read " + filename
+                        + ".");
+            }
+        }
+        Stats.read(getSize());
+        this.name = filename;
+    }
+
+    /** Create a new blob from the contents of a file.
+     * @param data the file's contents
+     * @param filename the file's name */
+    public Blob(byte[] data, String filename) {
+        this.contents = data;
         this.sha1hash = sha1((Object) this.contents);
         this.name = filename;
     }
 
+    /** Create a new blob from the contents of a file, storing them as
+     *  chunks in CHUNKSTORE if they are large.
+     * @param data the file's contents
+     * @param filename the file's name
+     * @param chunkStore the repository's chunk store */
+    public Blob(byte[] data, String filename, ChunkStore chunkStore) {
+        this(data, filename);
+        if (data.length > CHUNK_THRESHOLD) {
+            List<String> codes = new ArrayList<>();
+            for (int pos = 0; pos < data.length;) {
+                int len = Chunker.cut(data, pos, data.length);
+                codes.add(chunkStore.put(
+                        Arrays.copyOfRange(data, pos, pos + len)));
+                pos += len;
+            }
+            this.chunks = codes.toArray(new String[0]);
+            this.size = data.length;
+            this.contents = null;
+            this.store = chunkStore;
+        }
+    }
+
+    /** Return a blob with the same content as this one, named FILENAME.
+     *  Chunked content is shared, not copied.
+     * @param filename the name
+     * @return the blob */
+    public Blob named(String filename) {
+        if (filename.equals(name)) {
+            return this;
+        }
+        return new Blob(this, filename);
+    }
+
+    /** Create a copy of OTHER named FILENAME.
+     * @param other the blob
+     * @param filename the copy's name */
+    private Blob(Blob other, String filename) {
+        this.sha1hash = other.sha1hash;
+        this.contents = other.contents;
+        this.name = filename;
+        this.chunks = other.chunks;
+        this.size = other.size;
+        this.store = other.store;
+    }
+
     /** Get the SHA1 of this blob.
      * @return the SHA1 */
     public String getSha1hash() {
         return this.sha1hash;
     }
 
-    /** Get the content of this blob.
+    /** Get the content of this blob, assembling it from its chunks if it
+     *  is chunked.
      * @return the blob's content */
     public byte[] getContents() {
-        return this.contents;
+        if (chunks == null) {
+            return this.contents;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new GitletException(name + " is too large to be read "
+                    + "into memory.");
+        }
+        byte[] result = new byte[(int) size];
+        int pos = 0;
+        for (String code : chunks) {
+            byte[] chunk = chunkStore().get(code);
+            System.arraycopy(chunk, 0, result, pos, chunk.length);
+            pos += chunk.length;
+        }
+        return result;
+    }
+
+    /** Get the size of the content.
+     * @return its size in bytes */
+    public long getSize() {
+        return chunks == null ? contents.length : size;
+    }
+
+    /** Get the chunks holding the content.
+     * @return their SHA1 codes, or null if the content is inline */
+    public String[] getChunks() {
+        return chunks == null ? null : Arrays.copyOf(chunks, chunks.length);
+    }
+
+    /** Read chunks from CHUNKSTORE from now on.
+     * @param chunkStore the repository's chunk store */
+    public void attach(ChunkStore chunkStore) {
+        this.store = chunkStore;
+    }
+
+    /** Write the content to F, one chunk at a time.
+     * @param f the file */
+    public void writeTo(File f) {
+        if (chunks == null) {
+            Utils.writeContents(f, (Object) contents);
+            return;
+        }
+        try (OutputStream out = new BufferedOutputStream(
+                new FileOutputStream(f))) {
+            for (String code : chunks) {
+                out.write(chunkStore().get(code));
+            }
+        } catch (IOException e) {
+            throw new GitletException("Could not write " + f.getName()
+                    + ".");
+        }
+    }
+
+    /** Return true iff the file F holds exactly the content of this blob.
+     *  Large files are hashed as they are read rather than loaded whole.
+     * @param f the file
+     * @return true/false */
+    public boolean matches(File f) {
+        if (!f.isFile() || f.length() != getSize()) {
+            return false;
+        }
+        if (chunks == null) {
+            return Arrays.equals(readContents(f), contents);
+        }
+        try (InputStream in = new FileInputStream(f)) {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] buf = new byte[Chunker.MAX_SIZE];
+            for (int n = in.read(buf); n > 0; n = in.read(buf)) {
+                md.update(buf, 0, n);
+            }
+            return hex(md.digest()).equals(sha1hash);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return false;
+        }
+    }
+
+    /** Return the SHA1 of this blob, so that the code of a commit depends
+     *  on the contents of the files it tracks.
+     * @return the SHA1 */
+    @Override
+    public String toString() {
+        return sha1hash;
+    }
+
+    /** Return true iff the content hashes to this blob's SHA1. Chunked
+     *  content is hashed one chunk at a time rather than assembled.
+     * @return true/false */
+    public boolean isIntact() {
+        if (chunks == null) {
+            return sha1((Object) contents).equals(sha1hash);
+        }
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            long total = 0;
+            for (String code : chunks) {
+                byte[] chunk = chunkStore().get(code);
+                md.update(chunk);
+                total += chunk.length;
+            }
+            return total == size && hex(md.digest()).equals(sha1hash);
+        } catch (NoSuchAlgorithmException e) {
+            return false;
+        }
     }
 
     /** Get the blob's name.
@@ -46,4 +259,24 @@ public class Blob implements Serializable {
         return this.name;
     }
 
+    /** Return the chunk store, failing if none is attached.
+     * @return the store */
+    private ChunkStore chunkStore() {
+        if (store == null) {
+            throw new GitletException("The chunks of " + name
+                    + " are not available.");
+        }
+        return store;
+    }
+
+    /** Return DIGEST in hexadecimal, as Utils.sha1 does.
+     * @param digest a SHA1 digest
+     * @return its hex code */
+    private static String hex(byte[] digest) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
 }
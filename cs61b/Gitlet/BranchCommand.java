@@ -33,7 +33,8 @@ public class BranchCommand extends Command {
         }
         String activeBranch = repo.getActiveBranch();
         String headCode = branches.get(activeBranch);
-        branches.put(branchName, headCode);
+        repo.setBranch(branchName, headCode, "branch: Created from "
+                + activeBranch);
     }
 
     /** Deletes the branch with the given name. This only means to delete
@@ -50,6 +51,10 @@ public class BranchCommand extends Command {
         if (activeBranch.equals(branchName)) {
             throw new GitletException("Cannot remove the current branch.");
         }
-        branches.remove(branchName);
+        if (repo.checkedOutElsewhere(branchName)) {
+            throw new GitletException("Cannot remove a branch checked out "
+                    + "in another worktree.");
+        }
+        repo.removeBranch(branchName);
     }
 }
@@ -1,7 +1,6 @@
 package gitlet;
 
 import java.io.File;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,12 +18,12 @@ public class CheckOutCommand extends Command {
         super(repository, arg);
     }
 
-    /** The current working directory. */
-    private File workingDirectory = new File(System.getProperty("user.dir"));
-
     /** The repository. */
     private Repository repo = getRepo();
 
+    /** The working directory. */
+    private File workingDirectory = repo.getWorkingDirectory();
+
     /** The arguments.*/
     private String[] args = getArgs();
 
@@ -104,10 +103,14 @@ public class CheckOutCommand extends Command {
     public void checkout3(String branchName) throws GitletException {
         String currBranch = repo.getActiveBranch();
         if (currBranch.equals(branchName)) {
-            System.out.println("No need to checkout the current branch.");
+            getOut().println("No need to checkout the current branch.");
         }
 
         String headCode = repo.getBranch(branchName);
+        if (repo.checkedOutElsewhere(branchName)) {
+            throw new GitletException("That branch is already checked out "
+                    + "in another worktree.");
+        }
         checkoutCommit(headCode);
 
         repo.setActiveBranch(branchName);
@@ -131,7 +134,9 @@ public class CheckOutCommand extends Command {
         for (Map.Entry<String, Blob> fileSets : headFiles.entrySet()) {
             String fileName = fileSets.getKey();
             Blob fileBlob = fileSets.getValue();
-            restoreFile(fileBlob, fileName);
+            if (isCheckedOut(fileName, currFiles)) {
+                restoreFile(fileBlob, fileName);
+            }
         }
 
         for (Map.Entry<String, Blob> files : currFiles.entrySet()) {
@@ -149,36 +154,54 @@ public class CheckOutCommand extends Command {
      * @param fileName name of the file
      */
     public void restoreFile(Blob b, String fileName) {
+        long start = Stats.start();
         File workFile = join(workingDirectory, fileName);
         if (b == null) {
             workFile.delete();
         } else {
-            byte[] fileContent = b.getContents();
-            writeContents(workFile, (Object) fileContent);
+            b.writeTo(workFile);
+            Stats.written(b.getSize());
         }
+        Stats.stop(Stats.WRITE_FILES, start);
+    }
+
+    /** Return true iff the file NAME is kept in the working directory:
+     *  there is no sparse checkout, its patterns select NAME, or NAME is
+     *  tracked in CURRSET and present anyway.
+     * @param name the file's name
+     * @param currSet the current files tracked
+     * @return true/false
+     */
+    public boolean isCheckedOut(String name, HashMap<String, Blob> currSet) {
+        return repo.inSparseCheckout(name) || (currSet.containsKey(name)
+                && join(workingDirectory, name).exists());
     }
 
     /** Find if any file that would be checked out is currently untracked.
+     *  Ignored files are expendable and do not count, and neither do files
+     *  outside a sparse checkout.
      * @param currSet the current files tracked
      * @param checkoutSet the files that would be checked out
      * @return true/false
      */
     private boolean findUntracked(HashMap<String, Blob> currSet,
                                   HashMap<String, Blob> checkoutSet) {
+        IgnoreRules ignore = repo.getIgnoreRules();
         for (Map.Entry<String, Blob> files : checkoutSet.entrySet()) {
             String fileName = files.getKey();
+            if (!isCheckedOut(fileName, currSet)) {
+                continue;
+            }
             File workFile = join(workingDirectory, fileName);
-            if (!currSet.containsKey(fileName) && workFile.exists()) {
+            if (!currSet.containsKey(fileName) && workFile.exists()
+                    && !ignore.matches(fileName, false)) {
                 return true;
             }
             if (currSet.containsKey(fileName)) {
                 Blob curBlob = currSet.get(fileName);
                 Blob checkout = files.getValue();
-                if (workFile.exists()) {
-                    byte[] workData = readContents(workFile);
-                    if (!Arrays.equals(curBlob.getContents(), workData)) {
-                        return true;
-                    }
+                if (workFile.exists() && !curBlob.matches(workFile)) {
+                    return true;
                 }
             }
         }
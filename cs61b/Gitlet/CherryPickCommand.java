@@ -0,0 +1,48 @@
+package gitlet;
+
+import java.io.File;
+import java.util.HashMap;
+
+/** A command that applies the change made by one commit on top of the
+ *  current branch, as a new commit with the same message.
+ * @author taoxinyyyun
+ */
+public class CherryPickCommand extends MergeCommand {
+
+    /** the constructor.
+     * @param repository the repository
+     * @param arg the arguments */
+    public CherryPickCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** Merges the given commit into the working directory with its parent
+     *  as the split point, then commits the result.
+     * @throws GitletException
+     */
+    @Override
+    public void run() throws GitletException {
+        File[] staged = repo.getStagedFiles();
+        HashMap<String, File> removed = repo.getRemoveFiles();
+        if (staged.length != 0 || !removed.isEmpty()) {
+            throw new GitletException("You have uncommitted changes.");
+        }
+        Commit picked = repo.getCommit(args[1]);
+        Commit base = repo.getParent(picked);
+        if (base == null) {
+            throw new GitletException("Cannot cherry-pick the "
+                    + "initial commit.");
+        }
+        if (!mergeCommit(base, repo.getHeadCommit(), picked)) {
+            getOut().println("Encountered a merge conflict.");
+        }
+        String[] commitArgs = {"commit", picked.getMessage()};
+        new CommitCommand(repo, commitArgs).run();
+    }
+}
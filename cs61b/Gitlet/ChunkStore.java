@@ -0,0 +1,128 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/** The chunks of large files, each stored once under the SHA1 of its
+ *  bytes in a directory fanned out by the first two hex digits, so that
+ *  the versions of a large file share every chunk they have in common.
+ * @author taoxinyyyun
+ */
+class ChunkStore {
+
+    /** The directory holding the chunks. */
+    private final File dir;
+
+    /** The chunks kept in DIR.
+     * @param chunkDir the directory holding the chunks */
+    ChunkStore(File chunkDir) {
+        dir = chunkDir;
+    }
+
+    /** Get the directory holding the chunks.
+     * @return the directory */
+    File getDirectory() {
+        return dir;
+    }
+
+    /** Return the file holding chunk CODE.
+     * @param code the chunk's SHA1 code
+     * @return its file */
+    File file(String code) {
+        return join(dir, code.substring(0, 2), code.substring(2));
+    }
+
+    /** Read chunk CODE.
+     * @param code the chunk's SHA1 code
+     * @return its bytes */
+    byte[] get(String code) throws GitletException {
+        File f = file(code);
+        if (!f.exists()) {
+            throw new GitletException("Missing chunk " + code + ".");
+        }
+        return readContents(f);
+    }
+
+    /** Split everything IN yields into chunks, store the new ones, and
+     *  feed every byte to WHOLE.
+     * @param in the data
+     * @param whole a digest of all the data
+     * @return the SHA1 codes of the chunks, in order
+     * @throws IOException if IN cannot be read */
+    List<String> putAll(InputStream in, MessageDigest whole)
+        throws IOException {
+        ArrayList<String> codes = new ArrayList<>();
+        byte[] buf = new byte[2 * Chunker.MAX_SIZE];
+        int start = 0;
+        int end = 0;
+        boolean eof = false;
+        while (true) {
+            if (!eof && end - start < Chunker.MAX_SIZE) {
+                System.arraycopy(buf, start, buf, 0, end - start);
+                end -= start;
+                start = 0;
+                int n = in.readNBytes(buf, end, buf.length - end);
+                eof = end + n < buf.length;
+                end += n;
+            }
+            if (start == end) {
+                return codes;
+            }
+            int len = Chunker.cut(buf, start, end);
+            whole.update(buf, start, len);
+            codes.add(put(Arrays.copyOfRange(buf, start, start + len)));
+            start += len;
+        }
+    }
+
+    /** Store the chunk DATA unless it is already present.
+     * @param data the chunk
+     * @return its SHA1 code */
+    String put(byte[] data) throws GitletException {
+        String code = sha1((Object) data);
+        File f = file(code);
+        if (!f.exists()) {
+            f.getParentFile().mkdirs();
+            File tmp = new File(f.getPath() + ".tmp");
+            writeContents(tmp, (Object) data);
+            try {
+                Files.move(tmp.toPath(), f.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new GitletException("Could not store a chunk.");
+            }
+        }
+        return code;
+    }
+
+    /** Return the SHA1 codes of every stored chunk.
+     * @return the codes */
+    List<String> all() {
+        ArrayList<String> codes = new ArrayList<>();
+        File[] fans = dir.listFiles();
+        if (fans == null) {
+            return codes;
+        }
+        for (File fan : fans) {
+            String[] names = fan.list();
+            if (names == null) {
+                continue;
+            }
+            for (String name : names) {
+                if (name.length() == 38 && !name.endsWith(".tmp")) {
+                    codes.add(fan.getName() + name);
+                }
+            }
+        }
+        return codes;
+    }
+}
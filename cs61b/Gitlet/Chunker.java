@@ -0,0 +1,77 @@
+package gitlet;
+
+/** Content-defined chunking with the FastCDC algorithm. A rolling Gear
+ *  hash over the bytes picks chunk boundaries from the content itself, so
+ *  an insertion or deletion only changes the chunks around it and the
+ *  rest of a large file keeps the same chunks from version to version.
+ *  Boundaries are harder to find before the average size and easier after
+ *  it, which keeps chunk sizes close to the average.
+ * @author taoxinyyyun
+ */
+final class Chunker {
+
+    /** Smallest chunk, except at the end of the input. */
+    static final int MIN_SIZE = 16 * 1024;
+
+    /** Target average chunk size. */
+    static final int AVG_SIZE = 64 * 1024;
+
+    /** Largest chunk. */
+    static final int MAX_SIZE = 256 * 1024;
+
+    /** Mask used before the average size: two bits more than log2 of it. */
+    private static final long MASK_SMALL = -1L << (64 - 18);
+
+    /** Mask used after the average size: two bits fewer. */
+    private static final long MASK_LARGE = -1L << (64 - 14);
+
+    /** A random 64-bit value for each byte value. */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < GEAR.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            long z = seed;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    /** Not instantiable. */
+    private Chunker() {
+    }
+
+    /** Return the length of the chunk starting at START in BUF, whose
+     *  valid bytes end at END. Unless END comes first, the chunk is at
+     *  least MIN_SIZE and at most MAX_SIZE bytes long.
+     * @param buf the data
+     * @param start the start of the chunk
+     * @param end the end of the data
+     * @return the chunk's length
+     */
+    static int cut(byte[] buf, int start, int end) {
+        int n = end - start;
+        if (n <= MIN_SIZE) {
+            return n;
+        }
+        int limit = Math.min(n, MAX_SIZE);
+        int normal = Math.min(limit, AVG_SIZE);
+        long hash = 0;
+        int i = MIN_SIZE;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[buf[start + i] & 0xff];
+            if ((hash & MASK_SMALL) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < limit; i++) {
+            hash = (hash << 1) + GEAR[buf[start + i] & 0xff];
+            if ((hash & MASK_LARGE) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,112 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static gitlet.Utils.*;
+
+/** A command that clones a repository into another directory on the same
+ *  machine. Commits are content-addressed and never rewritten, so they are
+ *  hardlinked into the new repository instead of copied, as are the chunks
+ *  of large files; only the mutable repository state is written out fresh.
+ * @author taoxinyyyun
+ */
+public class CloneCommand extends Command {
+
+    /** Filter out all commits. */
+    private FilenameFilter cFilter = (f, name) -> name.matches("[0-9a-f]{40}");
+
+    /** the constructor.
+     * @param repository the repository being cloned
+     * @param arg the arguments */
+    public CloneCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** False once a hardlink has failed, e.g. because the destination is
+     *  on another filesystem. Every later object is then copied. */
+    private boolean canLink = true;
+
+    /** Clones the repository in the source directory into the destination
+     *  directory, then checks out the head of the active branch there. */
+    public void run() throws GitletException {
+        File srcGitlet = join(args[2], ".gitlet");
+        File dst = new File(args[3]);
+        File dstGitlet = join(dst, ".gitlet");
+        if (dstGitlet.exists()) {
+            throw new GitletException("A Gitlet version-control system "
+                    + "already exists in the destination directory.");
+        }
+        dst.mkdirs();
+        dstGitlet.mkdir();
+        join(dstGitlet, "staging").mkdir();
+
+        File[] objects = srcGitlet.listFiles(cFilter);
+        if (objects != null) {
+            for (File object : objects) {
+                linkObject(object, join(dstGitlet, object.getName()));
+            }
+        }
+
+        ChunkStore srcChunks = repo.getChunkStore();
+        ChunkStore dstChunks = new ChunkStore(join(dstGitlet, "chunks"));
+        for (String code : srcChunks.all()) {
+            File dstChunk = dstChunks.file(code);
+            dstChunk.getParentFile().mkdirs();
+            linkObject(srcChunks.file(code), dstChunk);
+        }
+
+        String headCode = repo.getBranches().get(repo.getActiveBranch());
+        Commit head = readObject(join(srcGitlet, headCode), Commit.class);
+        for (String name : new String[] {"packed-refs", "commit-graph"}) {
+            File f = join(srcGitlet, name);
+            if (f.exists()) {
+                writeContents(join(dstGitlet, name),
+                        (Object) readContents(f));
+            }
+        }
+        repo.relocate(dstGitlet);
+        repo.save();
+        repo.attachChunks(head);
+
+        HashMap<String, Blob> headFiles = head.getTrackedBlobs();
+        for (Map.Entry<String, Blob> file : headFiles.entrySet()) {
+            File workFile = join(dst, file.getKey());
+            file.getValue().writeTo(workFile);
+        }
+    }
+
+    /** Hardlink the immutable object SRC to DST, falling back to a plain
+     *  copy when the filesystem refuses the link.
+     * @param src the object in the source repository
+     * @param dst the object in the new repository
+     */
+    private void linkObject(File src, File dst) throws GitletException {
+        try {
+            if (canLink) {
+                try {
+                    Files.createLink(dst.toPath(), src.toPath());
+                    return;
+                } catch (IOException | UnsupportedOperationException e) {
+                    canLink = false;
+                }
+            }
+            Files.copy(src.toPath(), dst.toPath(),
+                    StandardCopyOption.COPY_ATTRIBUTES);
+        } catch (IOException e) {
+            throw new GitletException("Could not copy object "
+                    + src.getName() + ".");
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package gitlet;
 
+import java.io.PrintStream;
+
 /** The abstract class for command.
  * @author taoxinyyyun
  */
@@ -34,6 +36,13 @@ public abstract class Command {
         return args;
     }
 
+    /** The stream to print output to.
+     * @return the repository's output stream
+     */
+    public PrintStream getOut() {
+        return repo.getOut();
+    }
+
     /** Execute the command.
      */
     abstract void run();
@@ -1,13 +1,11 @@
 package gitlet;
 
-import java.io.File;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.HashMap;
 import java.text.SimpleDateFormat;
 
 import static gitlet.Utils.sha1;
-import static gitlet.Utils.readObject;
 
 /** Combinations of log messages, other metadata (commit date, author, etc.),
  *  a reference to a tree, and references to parent commits. The repository
@@ -40,29 +38,43 @@ public class Commit implements Serializable {
      * @param m the log message
      * @param parent the first parent
      * @param parent2 the second parent. */
-    public Commit(String m, String parent, String parent2) {
+    public Commit(String m, Commit parent, Commit parent2) {
         Date d;
         if (parent == null) {
             trackedBlobs = new HashMap<String, Blob>();
             d = new Date(0);
         } else {
-            File p = new File(".gitlet/" + parent);
-            Commit parentNode = readObject(p, Commit.class);
-            HashMap<String, Blob> parentBlobs = parentNode.getTrackedBlobs();
+            HashMap<String, Blob> parentBlobs = parent.getTrackedBlobs();
             trackedBlobs = new HashMap<String, Blob>();
             trackedBlobs.putAll(parentBlobs);
             if (parent2 != null) {
-                File p2 = new File(".gitlet/" + parent2);
-                Commit parent2Node = readObject(p2, Commit.class);
-                HashMap<String, Blob> blob2 = parent2Node.getTrackedBlobs();
+                HashMap<String, Blob> blob2 = parent2.getTrackedBlobs();
                 trackedBlobs.putAll(blob2);
             }
             d = new Date();
         }
         this.message = m;
+        this.parentSHA1 = parent == null ? null : parent.getSHA1();
+        this.parent2SHA1 = parent2 == null ? null : parent2.getSHA1();
+        this.date = new SimpleDateFormat("E MMM d HH:mm:ss yyyy Z").format(d);
+        this._SHA1 = sha1(parentSHA1 + parent2SHA1
+                + date + message + trackedBlobs);
+    }
+
+    /** Create a commit with a given date and snapshot, as when history is
+     *  imported.
+     * @param m the log message
+     * @param d the date, as shown by log
+     * @param parent the SHA1 of the first parent, or null
+     * @param parent2 the SHA1 of the second parent, or null
+     * @param blobs the blobs tracked */
+    public Commit(String m, String d, String parent, String parent2,
+                  HashMap<String, Blob> blobs) {
+        this.message = m;
         this.parentSHA1 = parent;
         this.parent2SHA1 = parent2;
-        this.date = new SimpleDateFormat("E MMM d HH:mm:ss yyyy Z").format(d);
+        this.date = d;
+        this.trackedBlobs = new HashMap<String, Blob>(blobs);
         this._SHA1 = sha1(parentSHA1 + parent2SHA1
                 + date + message + trackedBlobs);
     }
@@ -91,26 +103,6 @@ public class Commit implements Serializable {
         return parent2SHA1;
     }
 
-    /** Get the commit's parent.
-     * @return the parent */
-    public Commit getParent() {
-        if (parentSHA1 == null) {
-            return null;
-        }
-        File parent = new File(".gitlet/" + parentSHA1);
-        return readObject(parent, Commit.class);
-    }
-
-    /** Get the commit's second parent.
-     * @return the second parent */
-    public Commit getSecParent() {
-        if (parent2SHA1 == null) {
-            return null;
-        }
-        File parent = new File(".gitlet/"  + parent2SHA1);
-        return readObject(parent, Commit.class);
-    }
-
     /** Get the commit's message.
      * @return the commit message.
      */
@@ -2,7 +2,6 @@ package gitlet;
 
 import java.util.HashMap;
 import java.io.File;
-import java.util.Map;
 
 import static gitlet.Utils.*;
 
@@ -45,12 +44,12 @@ public class CommitCommand extends Command {
         String message = args[1];
         Commit headCommit = repo.getHeadCommit();
         String headCode = headCommit.getSHA1();
-        Commit newCommit = new Commit(message, headCode, null);
+        Commit newCommit = new Commit(message, headCommit, null);
         HashMap<String, Blob> trackedFiles = newCommit.getTrackedBlobs();
 
         for (File f : stagingFiles) {
             String name = f.getName();
-            Blob newFile = new Blob(f, name);
+            Blob newFile = new Blob(f, name, repo.getChunkStore());
             if (trackedFiles.containsKey(name)) {
                 trackedFiles.replace(name, newFile);
             } else {
@@ -59,17 +58,15 @@ public class CommitCommand extends Command {
             f.delete();
         }
 
-        for (Map.Entry<String, File> removeFile : removed.entrySet()) {
-            String name = removeFile.getKey();
+        for (String name : removed.keySet()) {
             trackedFiles.remove(name);
-            removed.remove(name);
         }
+        removed.clear();
 
         String newSHA1 = newCommit.getSHA1();
         String activeBranch = repo.getActiveBranch();
-        repo.getBranches().put(activeBranch, newSHA1);
+        repo.setBranch(activeBranch, newSHA1, "commit: " + message);
         repo.getCommits().add(newSHA1);
-        File commit = new File(".gitlet/" + newSHA1);
-        writeObject(commit, newCommit);
+        repo.writeObjectFile(newSHA1, newCommit);
     }
 }
@@ -0,0 +1,264 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static gitlet.Utils.*;
+
+/** A file with one fixed-size record per commit: its parents and a Bloom
+ *  filter of the paths it changed relative to its first parent. Records
+ *  are appended as commits are written, and the file is rewritten only
+ *  when garbage collection deletes commits. A history walk limited to one path reads parents from here and
+ *  only deserializes the commits whose filter may contain the path.
+ *  Commits changing more paths than a filter can hold get a filter that
+ *  matches every path.
+ * @author taoxinyyyun
+ */
+class CommitGraph {
+
+    /** Bytes in one binary SHA1 code. */
+    private static final int CODE_BYTES = 20;
+
+    /** Bytes in one Bloom filter. */
+    private static final int FILTER_BYTES = 64;
+
+    /** Bits in one Bloom filter. */
+    private static final int FILTER_BITS = FILTER_BYTES * 8;
+
+    /** Bits set for each path. */
+    private static final int HASHES = 7;
+
+    /** Most paths recorded in a filter; about ten bits each keeps false
+     *  positives near one percent. */
+    private static final int MAX_PATHS = FILTER_BITS / 10;
+
+    /** Bytes in one record: commit, parents, path count and filter. */
+    static final int RECORD = 3 * CODE_BYTES + 4 + FILTER_BYTES;
+
+    /** The graph entry of one commit. */
+    static class Entry {
+        /** The commit's parents, null if absent. */
+        private final String parent, parent2;
+        /** The paths it changed, or -1 if there were too many to record. */
+        private final int count;
+        /** The Bloom filter of the changed paths. */
+        private final byte[] filter;
+
+        /** Create an entry.
+         * @param parent the first parent, or null
+         * @param parent2 the second parent, or null
+         * @param count the number of changed paths, or -1
+         * @param filter the filter */
+        Entry(String parent, String parent2, int count, byte[] filter) {
+            this.parent = parent;
+            this.parent2 = parent2;
+            this.count = count;
+            this.filter = filter;
+        }
+
+        /** Get the first parent.
+         * @return its SHA1 code, or null */
+        String getParent() {
+            return parent;
+        }
+
+        /** Get the second parent.
+         * @return its SHA1 code, or null */
+        String getParent2() {
+            return parent2;
+        }
+
+        /** Return false if the commit certainly did not change PATH.
+         * @param path a file name
+         * @return true/false */
+        boolean mayHaveChanged(String path) {
+            if (count < 0) {
+                return true;
+            }
+            for (int bit : bits(path)) {
+                if ((filter[bit >>> 3] & (1 << (bit & 7))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** The file holding the records. */
+    private final File file;
+
+    /** The records read so far, by commit, or null before reading. */
+    private HashMap<String, Entry> entries;
+
+    /** The commit graph kept in the gitlet directory DIR.
+     * @param dir the directory holding the objects */
+    CommitGraph(File dir) {
+        file = join(dir, "commit-graph");
+    }
+
+    /** Return the entry of the commit CODE, or null if it has none.
+     * @param code the commit's SHA1 code
+     * @return the entry */
+    Entry get(String code) throws GitletException {
+        if (entries == null) {
+            entries = readAll();
+        }
+        return entries.get(code);
+    }
+
+    /** Record the commit C, which changed the files in CHANGED.
+     * @param c the commit
+     * @param changed the changed paths */
+    void add(Commit c, Iterable<String> changed) throws GitletException {
+        byte[] filter = new byte[FILTER_BYTES];
+        int count = 0;
+        for (String path : changed) {
+            count += 1;
+            for (int bit : bits(path)) {
+                filter[bit >>> 3] |= (byte) (1 << (bit & 7));
+            }
+        }
+        if (count > MAX_PATHS) {
+            count = -1;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(RECORD);
+        buf.put(RefLog.toBytes(c.getSHA1()));
+        buf.put(RefLog.toBytes(orNone(c.getParentSHA1())));
+        buf.put(RefLog.toBytes(orNone(c.getParent2SHA1())));
+        buf.putInt(count);
+        buf.put(filter);
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(out.length() - out.length() % RECORD);
+            out.write(buf.array());
+        } catch (IOException e) {
+            throw new GitletException("Could not write the commit graph.");
+        }
+        if (entries != null) {
+            entries.put(c.getSHA1(), new Entry(c.getParentSHA1(),
+                    c.getParent2SHA1(), count, filter));
+        }
+    }
+
+    /** Rewrite the file keeping only the records of the commits in KEEP,
+     *  once each, as when garbage collection has deleted the others.
+     * @param keep the SHA1 codes of the commits that still exist */
+    void retain(Set<String> keep) throws GitletException {
+        if (!file.exists()) {
+            return;
+        }
+        byte[] data = readContents(file);
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        ByteBuffer out = ByteBuffer.allocate(data.length);
+        HashSet<String> written = new HashSet<>();
+        while (buf.remaining() >= RECORD) {
+            int start = buf.position();
+            String code = RefLog.fromBytes(buf);
+            if (keep.contains(code) && written.add(code)) {
+                out.put(data, start, RECORD);
+            }
+            buf.position(start + RECORD);
+        }
+        File tmp = join(file.getParentFile(), "commit-graph.tmp");
+        writeContents(tmp, (Object) Arrays.copyOf(out.array(),
+                out.position()));
+        try {
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new GitletException("Could not write the commit graph.");
+        }
+        entries = null;
+    }
+
+    /** Return the paths whose blobs differ between PREV and CURR.
+     * @param prev the files of the first parent, or null for none
+     * @param curr the files of the commit
+     * @return the changed paths, sorted */
+    static TreeSet<String> changedPaths(HashMap<String, Blob> prev,
+                                        HashMap<String, Blob> curr) {
+        TreeSet<String> result = new TreeSet<>();
+        HashMap<String, Blob> before = prev == null ? new HashMap<>() : prev;
+        for (Map.Entry<String, Blob> file : curr.entrySet()) {
+            Blob old = before.get(file.getKey());
+            if (old == null || !old.getSha1hash().equals(
+                    file.getValue().getSha1hash())) {
+                result.add(file.getKey());
+            }
+        }
+        for (String name : before.keySet()) {
+            if (!curr.containsKey(name)) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    /** Read every record of the file.
+     * @return the entries, by commit */
+    private HashMap<String, Entry> readAll() throws GitletException {
+        HashMap<String, Entry> result = new HashMap<>();
+        if (!file.exists()) {
+            return result;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(readContents(file));
+        while (buf.remaining() >= RECORD) {
+            String code = RefLog.fromBytes(buf);
+            String parent = fromNone(RefLog.fromBytes(buf));
+            String parent2 = fromNone(RefLog.fromBytes(buf));
+            int count = buf.getInt();
+            byte[] filter = new byte[FILTER_BYTES];
+            buf.get(filter);
+            result.put(code, new Entry(parent, parent2, count, filter));
+        }
+        return result;
+    }
+
+    /** Return the bits of a filter that PATH sets, by double hashing two
+     *  hashes of its bytes.
+     * @param path a file name
+     * @return the bit positions */
+    private static int[] bits(String path) {
+        byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        int h1 = 0x811c9dc5;
+        int h2 = 0;
+        for (byte b : bytes) {
+            h1 = (h1 ^ (b & 0xff)) * 0x01000193;
+            h2 = h2 * 31 + (b & 0xff);
+        }
+        h2 ^= h2 >>> 16;
+        h2 *= 0x85ebca6b;
+        h2 ^= h2 >>> 13;
+        h2 |= 1;
+        int[] result = new int[HASHES];
+        for (int i = 0; i < HASHES; i++) {
+            result[i] = Math.floorMod(h1 + i * h2, FILTER_BITS);
+        }
+        return result;
+    }
+
+    /** Return CODE, or the all-zero code if it is null.
+     * @param code a SHA1 code, or null
+     * @return the code to record */
+    private static String orNone(String code) {
+        return code == null ? RefLog.NONE : code;
+    }
+
+    /** Return CODE, or null if it is the all-zero code.
+     * @param code a recorded SHA1 code
+     * @return the code, or null */
+    private static String fromNone(String code) {
+        return code.equals(RefLog.NONE) ? null : code;
+    }
+}
@@ -0,0 +1,217 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static gitlet.Utils.*;
+
+/** A command that writes the history reachable from every branch and tag
+ *  as one stream: fast-export [FILE]. The stream is a sequence of
+ *  records, each a line naming it followed by lines of arguments:
+ *
+ *      blob / mark :N / data LEN, then LEN bytes and a newline
+ *      commit / mark :N / date DATE / data LEN, then the message and a
+ *          newline / from :N / merge :N / M :N PATH / D PATH
+ *      tag NAME / from :N / date DATE / data LEN, then the message
+ *      reset refs/heads/NAME or refs/tags/NAME / from :N
+ *      checkpoint
+ *      done
+ *
+ *  Marks number the blobs and commits of the stream; a commit lists the
+ *  files it adds, changes (M) or removes (D) relative to its first
+ *  parent, whose record always comes earlier. Stashes are not exported.
+ * @author taoxinyyyun
+ */
+public class FastExportCommand extends Command {
+
+    /** the constructor.
+     * @param repository the repository
+     * @param arg the arguments */
+    public FastExportCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** Where the stream goes. */
+    private OutputStream out;
+
+    /** The next mark to assign. */
+    private int nextMark = 1;
+
+    /** Marks of the commits written, by SHA1. */
+    private HashMap<String, Integer> commitMarks = new HashMap<>();
+
+    /** Marks of the blobs written, by SHA1. */
+    private HashMap<String, Integer> blobMarks = new HashMap<>();
+
+    /** Writes the stream to the given file, or to the output. */
+    public void run() throws GitletException {
+        if (args.length > 2) {
+            throw new GitletException("Incorrect operands.");
+        }
+        try {
+            if (args.length == 2) {
+                File f = new File(args[1]);
+                if (!f.isAbsolute()) {
+                    f = join(repo.getWorkingDirectory(), args[1]);
+                }
+                out = new BufferedOutputStream(new FileOutputStream(f));
+            } else {
+                out = new BufferedOutputStream(getOut());
+            }
+            export();
+            out.flush();
+            if (args.length == 2) {
+                out.close();
+            }
+        } catch (IOException excp) {
+            throw new GitletException(excp.getMessage());
+        }
+    }
+
+    /** Write every record of the stream.
+     * @throws IOException if the stream cannot be written */
+    private void export() throws IOException {
+        TreeMap<String, String> branches = new TreeMap<>(repo.getBranches());
+        TreeMap<String, String> tags = repo.getRefs().all(Tag.PREFIX);
+        ArrayList<String> roots = new ArrayList<>(branches.values());
+        for (String code : tags.values()) {
+            roots.add(repo.peel(code));
+        }
+        for (String code : order(roots)) {
+            writeCommit(repo.getCommit(code));
+        }
+        for (Map.Entry<String, String> branch : branches.entrySet()) {
+            line("reset refs/heads/" + branch.getKey());
+            line("from :" + commitMarks.get(branch.getValue()));
+        }
+        for (Map.Entry<String, String> ref : tags.entrySet()) {
+            String name = ref.getKey().substring(Tag.PREFIX.length());
+            String target = repo.peel(ref.getValue());
+            if (target.equals(ref.getValue())) {
+                line("reset " + ref.getKey());
+                line("from :" + commitMarks.get(target));
+            } else {
+                Tag tag = readObject(repo.objectFile(ref.getValue()),
+                        Tag.class);
+                line("tag " + name);
+                line("from :" + commitMarks.get(target));
+                line("date " + tag.getDate());
+                data(tag.getMessage().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        line("done");
+    }
+
+    /** Return the commits reachable from ROOTS, every commit after its
+     *  parents.
+     * @param roots SHA1 codes of commits
+     * @return the SHA1 codes in order */
+    private ArrayList<String> order(ArrayList<String> roots) {
+        ArrayList<String> result = new ArrayList<>();
+        HashSet<String> seen = new HashSet<>();
+        HashSet<String> done = new HashSet<>();
+        ArrayDeque<String> stack = new ArrayDeque<>(roots);
+        while (!stack.isEmpty()) {
+            String code = stack.peek();
+            if (seen.add(code)) {
+                Commit c = repo.getCommit(code);
+                if (c.getParent2SHA1() != null
+                        && !seen.contains(c.getParent2SHA1())) {
+                    stack.push(c.getParent2SHA1());
+                }
+                if (c.getParentSHA1() != null
+                        && !seen.contains(c.getParentSHA1())) {
+                    stack.push(c.getParentSHA1());
+                }
+            } else {
+                stack.pop();
+                if (done.add(code)) {
+                    result.add(code);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Write the record of C, preceded by those of its new blobs.
+     * @param c the commit
+     * @throws IOException if the stream cannot be written */
+    private void writeCommit(Commit c) throws IOException {
+        HashMap<String, Blob> files = c.getTrackedBlobs();
+        Commit parent = repo.getParent(c);
+        HashMap<String, Blob> before = parent == null
+                ? new HashMap<>() : parent.getTrackedBlobs();
+        ArrayList<String> changes = new ArrayList<>();
+        for (String name : new TreeSet<>(files.keySet())) {
+            Blob b = files.get(name);
+            Blob old = before.get(name);
+            if (old != null && old.getSha1hash().equals(b.getSha1hash())) {
+                continue;
+            }
+            Integer mark = blobMarks.get(b.getSha1hash());
+            if (mark == null) {
+                mark = nextMark++;
+                blobMarks.put(b.getSha1hash(), mark);
+                line("blob");
+                line("mark :" + mark);
+                data(b.getContents());
+            }
+            changes.add("M :" + mark + " " + name);
+        }
+        for (String name : new TreeSet<>(before.keySet())) {
+            if (!files.containsKey(name)) {
+                changes.add("D " + name);
+            }
+        }
+        int mark = nextMark++;
+        commitMarks.put(c.getSHA1(), mark);
+        line("commit");
+        line("mark :" + mark);
+        line("date " + c.getDate());
+        data(c.getMessage().getBytes(StandardCharsets.UTF_8));
+        if (c.getParentSHA1() != null) {
+            line("from :" + commitMarks.get(c.getParentSHA1()));
+        }
+        if (c.getParent2SHA1() != null) {
+            line("merge :" + commitMarks.get(c.getParent2SHA1()));
+        }
+        for (String change : changes) {
+            line(change);
+        }
+        line("");
+    }
+
+    /** Write S and a newline.
+     * @param s the line
+     * @throws IOException if the stream cannot be written */
+    private void line(String s) throws IOException {
+        out.write(s.getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+
+    /** Write DATA with its length.
+     * @param data the bytes
+     * @throws IOException if the stream cannot be written */
+    private void data(byte[] data) throws IOException {
+        line("data " + data.length);
+        out.write(data);
+        out.write('\n');
+    }
+}
@@ -0,0 +1,314 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+
+import static gitlet.Utils.*;
+
+/** A command that reads a stream in the format written by fast-export and
+ *  adds its commits, tags and branches to the repository:
+ *  fast-import [--checkpoint=N] [FILE]. Objects are written as they
+ *  arrive, and the repository itself is saved only every N commits
+ *  (1000 by default), at each checkpoint record and at the end. Only
+ *  the SHA1 codes of blobs are kept in memory between records; their
+ *  contents wait in the chunk store or a scratch directory. Like
+ *  branch, it moves references without touching the working directory.
+ * @author taoxinyyyun
+ */
+public class FastImportCommand extends Command {
+
+    /** Commits between checkpoints unless another interval is given. */
+    private static final int DEFAULT_CHECKPOINT = 1000;
+
+    /** the constructor.
+     * @param repository the repository
+     * @param arg the arguments */
+    public FastImportCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** The stream being read. */
+    private InputStream in;
+
+    /** A line read but not yet handled, or null. */
+    private String pending;
+
+    /** The large blobs read, by mark. They are chunked as they arrive, so
+     *  only their chunk codes are kept. */
+    private HashMap<String, Blob> chunked = new HashMap<>();
+
+    /** SHA1 codes of the other blobs read, by mark. Their contents are
+     *  written to the spill directory as they arrive and read back for
+     *  each commit that uses them. */
+    private HashMap<String, String> spilled = new HashMap<>();
+
+    /** Where the contents of small blobs are kept during the import. */
+    private File spill;
+
+    /** Number of blob records read. */
+    private int blobCount;
+
+    /** SHA1 codes of the commits written, by mark. */
+    private HashMap<String, String> commits = new HashMap<>();
+
+    /** Reads the stream from the given file or from standard input. */
+    public void run() throws GitletException {
+        int checkpoint = DEFAULT_CHECKPOINT;
+        String file = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--checkpoint=")) {
+                try {
+                    checkpoint = Integer.parseInt(args[i].substring(13));
+                } catch (NumberFormatException excp) {
+                    throw new GitletException("Incorrect operands.");
+                }
+            } else if (file == null) {
+                file = args[i];
+            } else {
+                throw new GitletException("Incorrect operands.");
+            }
+        }
+        spill = join(repo.getObjectsDirectory(), "fast-import");
+        spill.mkdir();
+        try {
+            if (file != null) {
+                File f = new File(file);
+                if (!f.isAbsolute()) {
+                    f = join(repo.getWorkingDirectory(), file);
+                }
+                in = new BufferedInputStream(new FileInputStream(f));
+            } else {
+                in = new BufferedInputStream(System.in);
+            }
+            int imported = importAll(Math.max(1, checkpoint));
+            getOut().println("Imported " + imported + " commits and "
+                    + blobCount + " blobs.");
+            if (file != null) {
+                in.close();
+            }
+        } catch (IOException | NumberFormatException excp) {
+            throw new GitletException("Invalid fast-import stream: "
+                    + excp.getMessage());
+        } finally {
+            for (String name : spilled.values()) {
+                join(spill, name).delete();
+            }
+            spill.delete();
+        }
+    }
+
+    /** Read records until the end of the stream, saving the repository
+     *  every CHECKPOINT commits.
+     * @param checkpoint commits between saves
+     * @return the number of commits imported
+     * @throws IOException if the stream cannot be read */
+    private int importAll(int checkpoint) throws IOException {
+        int count = 0;
+        for (String line = next(); line != null; line = next()) {
+            if (line.isEmpty()) {
+                continue;
+            } else if (line.equals("blob")) {
+                readBlob(arg(next(), "mark "));
+            } else if (line.equals("commit")) {
+                readCommit();
+                count += 1;
+                if (count % checkpoint == 0) {
+                    checkpoint();
+                }
+            } else if (line.startsWith("reset refs/heads/")) {
+                repo.setBranch(line.substring(17),
+                        commit(arg(next(), "from ")), "fast-import");
+            } else if (line.startsWith("reset " + Tag.PREFIX)) {
+                setTag(line.substring(6), commit(arg(next(), "from ")));
+            } else if (line.startsWith("tag ")) {
+                String target = commit(arg(next(), "from "));
+                String date = arg(next(), "date ");
+                String message = new String(data(), StandardCharsets.UTF_8);
+                Tag tag = new Tag(line.substring(4), target, message, date);
+                repo.writeObjectFile(tag.getSHA1(), tag);
+                setTag(Tag.PREFIX + line.substring(4), tag.getSHA1());
+            } else if (line.equals("checkpoint")) {
+                checkpoint();
+            } else if (line.equals("done")) {
+                break;
+            } else {
+                throw new GitletException("Invalid fast-import stream: "
+                        + line);
+            }
+        }
+        return count;
+    }
+
+    /** Read the contents of the blob with mark MARK and put them where
+     *  later commits can find them: in the chunk store if they are large,
+     *  and in the spill directory otherwise.
+     * @param mark the blob's mark
+     * @throws IOException if the stream cannot be read */
+    private void readBlob(String mark) throws IOException {
+        byte[] contents = data();
+        blobCount += 1;
+        spilled.remove(mark);
+        chunked.remove(mark);
+        if (contents.length > Blob.CHUNK_THRESHOLD) {
+            chunked.put(mark, new Blob(contents, mark, repo.getChunkStore()));
+        } else {
+            String code = sha1((Object) contents);
+            File f = join(spill, code);
+            if (!f.exists()) {
+                writeContents(f, (Object) contents);
+            }
+            spilled.put(mark, code);
+        }
+    }
+
+    /** Read the rest of a commit record and write the commit.
+     * @throws IOException if the stream cannot be read */
+    private void readCommit() throws IOException {
+        String mark = null;
+        String date = null;
+        String line = next();
+        if (line != null && line.startsWith("mark ")) {
+            mark = arg(line, "mark ");
+            line = next();
+        }
+        if (line != null && line.startsWith("date ")) {
+            date = arg(line, "date ");
+        } else {
+            pending = line;
+            date = new SimpleDateFormat("E MMM d HH:mm:ss yyyy Z")
+                    .format(new Date());
+        }
+        String message = new String(data(), StandardCharsets.UTF_8);
+        String parent = null;
+        String parent2 = null;
+        HashMap<String, Blob> files = new HashMap<>();
+        for (line = next(); line != null; line = next()) {
+            if (line.startsWith("from ")) {
+                parent = commit(arg(line, "from "));
+                files.putAll(repo.getCommit(parent).getTrackedBlobs());
+            } else if (line.startsWith("merge ")) {
+                parent2 = commit(arg(line, "merge "));
+            } else if (line.startsWith("M ")) {
+                int space = line.indexOf(' ', 2);
+                String ref = space < 0 ? "" : line.substring(2, space);
+                String name = line.substring(space + 1);
+                if (chunked.containsKey(ref)) {
+                    files.put(name, chunked.get(ref).named(name));
+                } else if (spilled.containsKey(ref)) {
+                    files.put(name, new Blob(join(spill, spilled.get(ref)),
+                            name));
+                } else {
+                    throw new GitletException("Invalid fast-import stream: "
+                            + line);
+                }
+            } else if (line.startsWith("D ")) {
+                files.remove(line.substring(2));
+            } else {
+                pending = line;
+                break;
+            }
+        }
+        Commit c = new Commit(message, date, parent, parent2, files);
+        repo.getCommits().add(c.getSHA1());
+        repo.writeObjectFile(c.getSHA1(), c);
+        if (mark != null) {
+            commits.put(mark, c.getSHA1());
+        }
+    }
+
+    /** Save the repository and drop the commits it has cached, so that
+     *  memory does not grow with the length of the stream. */
+    private void checkpoint() {
+        repo.save();
+        repo.forgetCommits();
+    }
+
+    /** Point the tag reference NAME at CODE.
+     * @param name the full name of the reference
+     * @param code the SHA1 of a commit or annotated tag */
+    private void setTag(String name, String code) {
+        RefStore refs = repo.getRefs();
+        refs.update(name, refs.get(name), code);
+    }
+
+    /** Return the SHA1 of the commit REF names: a mark of the stream or
+     *  the id of a commit already in the repository.
+     * @param ref the reference
+     * @return its SHA1 */
+    private String commit(String ref) {
+        if (ref.startsWith(":")) {
+            String code = commits.get(ref);
+            if (code == null) {
+                throw new GitletException("Invalid fast-import stream: "
+                        + "unknown mark " + ref);
+            }
+            return code;
+        }
+        return repo.getCommit(ref).getSHA1();
+    }
+
+    /** Return what follows PREFIX in LINE.
+     * @param line a line of the stream
+     * @param prefix the keyword it should start with
+     * @return the argument */
+    private String arg(String line, String prefix) {
+        if (line == null || !line.startsWith(prefix)) {
+            throw new GitletException("Invalid fast-import stream: expected "
+                    + prefix.trim());
+        }
+        return line.substring(prefix.length());
+    }
+
+    /** Read a data line and the bytes it announces.
+     * @return the bytes
+     * @throws IOException if the stream cannot be read */
+    private byte[] data() throws IOException {
+        int length = Integer.parseInt(arg(next(), "data "));
+        byte[] result = in.readNBytes(length);
+        if (result.length != length) {
+            throw new GitletException("Invalid fast-import stream: "
+                    + "truncated data");
+        }
+        in.mark(1);
+        if (in.read() != '\n') {
+            in.reset();
+        }
+        return result;
+    }
+
+    /** Return the next line of the stream, without its newline, or null at
+     *  its end.
+     * @return the line
+     * @throws IOException if the stream cannot be read */
+    private String next() throws IOException {
+        if (pending != null) {
+            String line = pending;
+            pending = null;
+            return line;
+        }
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c = in.read();
+        if (c < 0) {
+            return null;
+        }
+        while (c >= 0 && c != '\n') {
+            line.write(c);
+            c = in.read();
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+}
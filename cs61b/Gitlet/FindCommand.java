@@ -2,8 +2,10 @@ package gitlet;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeSet;
 
 import static gitlet.Utils.*;
 
@@ -12,9 +14,6 @@ import static gitlet.Utils.*;
  */
 public class FindCommand extends Command {
 
-    /** The gitlet repository. */
-    private File gitletDir = new File(".gitlet/");
-
     /** Filter out all commits. */
     private FilenameFilter cFilter = (f, name) -> name.matches("[0-9a-f]{40}");
 
@@ -31,17 +30,29 @@ public class FindCommand extends Command {
     /** The arguments.*/
     private String[] args = getArgs();
 
+    /** The directory holding the commit objects. */
+    private File gitletDir = repo.getObjectsDirectory();
+
     /** Prints out the ids of all commits that have the given commit message,
      *  one per line. If there are multiple such commits, it prints the ids
      *  out on separate lines. The commit message is a single operand; to
      *  indicate a multiword message, put the operand in quotation marks,
-     *  as for the commit command below. */
+     *  as for the commit command below. With find --touching FILE, prints
+     *  the commits that changed FILE instead. */
     public void run() throws GitletException {
+        if (args.length == 3) {
+            touching(args[2]);
+            return;
+        }
         String message = args[1];
         File[] commits = gitletDir.listFiles(cFilter);
         List<String> target = new ArrayList<String>();
         for (File commit : commits) {
-            Commit c = readObject(commit, Commit.class);
+            Serializable obj = readObject(commit, Serializable.class);
+            if (!(obj instanceof Commit)) {
+                continue;
+            }
+            Commit c = (Commit) obj;
             if (c.getMessage().equals(message)) {
                 target.add(c.getSHA1());
             }
@@ -50,8 +61,33 @@ public class FindCommand extends Command {
             throw new GitletException("Found no commit with that message.");
         } else {
             for (String id : target) {
-                System.out.println(id);
+                getOut().println(id);
             }
         }
     }
+
+    /** Print the ids of all commits that changed FILE relative to their
+     *  first parent, in order of id. Only commits whose changed-path
+     *  filter may contain FILE are read.
+     * @param file the file's name */
+    private void touching(String file) throws GitletException {
+        CommitGraph graph = repo.getCommitGraph();
+        List<String> target = new ArrayList<String>();
+        for (String code : new TreeSet<>(repo.getCommits())) {
+            CommitGraph.Entry entry = graph.get(code);
+            if (entry != null && !entry.mayHaveChanged(file)) {
+                continue;
+            }
+            if (repo.changedFile(repo.getCommit(code), file)) {
+                target.add(code);
+            }
+        }
+        if (target.isEmpty()) {
+            throw new GitletException("Found no commit that changed "
+                    + "that file.");
+        }
+        for (String id : target) {
+            getOut().println(id);
+        }
+    }
 }
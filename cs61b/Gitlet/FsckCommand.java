@@ -0,0 +1,244 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static gitlet.Utils.*;
+
+/** A command that verifies the integrity of the object store. Every object
+ *  and chunk is re-read and re-hashed in parallel, then the commit graph is
+ *  checked for missing parents, broken branches and dangling commits.
+ * @author taoxinyyyun
+ */
+public class FsckCommand extends Command {
+
+    /** Minimum interval between progress reports, in nanoseconds. */
+    private static final long PROGRESS_INTERVAL = 1_000_000_000L;
+
+    /** Bytes in a megabyte. */
+    private static final double MB = 1024.0 * 1024.0;
+
+    /** Filter out all commits. */
+    private FilenameFilter cFilter = (f, name) -> name.matches("[0-9a-f]{40}");
+
+    /** the constructor.
+     * @param repository the repository
+     * @param arg the arguments */
+    public FsckCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** The directory holding the commit objects. */
+    private File gitletDir = repo.getObjectsDirectory();
+
+    /** Maps each valid object to the objects it refers to: a commit to its
+     *  parents, a tag to its target. */
+    private HashMap<String, String[]> parents = new HashMap<>();
+
+    /** Number of problems found. */
+    private int problems;
+
+    /** Checks every object, reporting corrupt objects, missing parents,
+     *  broken branches and dangling commits, followed by throughput. */
+    public void run() throws GitletException {
+        String[] objects = gitletDir.list(cFilter);
+        List<String> chunks = repo.getChunkStore().all();
+        long start = System.nanoTime();
+        long bytes = hashAll(objects, chunks);
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+
+        for (Map.Entry<String, String[]> entry : parents.entrySet()) {
+            for (String parent : entry.getValue()) {
+                if (parent != null && !parents.containsKey(parent)) {
+                    report("missing object " + parent + " referenced by "
+                            + entry.getKey());
+                }
+            }
+        }
+        for (Map.Entry<String, String> branch
+                : repo.getBranches().entrySet()) {
+            if (!parents.containsKey(branch.getValue())) {
+                report("broken branch " + branch.getKey() + " -> "
+                        + branch.getValue());
+            }
+        }
+        HashSet<String> reachable = reachable();
+        for (String commit : parents.keySet()) {
+            if (!reachable.contains(commit)) {
+                getOut().println("dangling commit " + commit);
+            }
+        }
+
+        getOut().printf("Checked %d objects, %.1f MB in %.2f s "
+                + "(%.1f MB/s).%n", objects.length + chunks.size(),
+                bytes / MB, seconds, bytes / MB / seconds);
+        if (problems != 0) {
+            getOut().println(problems + " problems found.");
+        }
+    }
+
+    /** Verify OBJECTS and the stored CHUNKS across all cores, recording
+     *  the parents of each valid commit and reporting each corrupt object.
+     * @param objects names of the objects to check
+     * @param chunks codes of the chunks to check
+     * @return the number of bytes read
+     */
+    private long hashAll(String[] objects, List<String> chunks)
+        throws GitletException {
+        ChunkStore store = repo.getChunkStore();
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        int total = objects.length + chunks.size();
+        List<Future<String>> results = new ArrayList<>(total);
+        List<File> files = new ArrayList<>(total);
+        for (String name : objects) {
+            results.add(pool.submit(() -> verify(name)));
+            files.add(join(gitletDir, name));
+        }
+        for (String code : chunks) {
+            results.add(pool.submit(() -> verifyChunk(code)));
+            files.add(store.file(code));
+        }
+        long bytes = 0;
+        long lastReport = System.nanoTime();
+        try {
+            for (int i = 0; i < total; i++) {
+                String error = results.get(i).get();
+                if (error != null) {
+                    report(error);
+                }
+                bytes += files.get(i).length();
+                long now = System.nanoTime();
+                if (now - lastReport >= PROGRESS_INTERVAL) {
+                    lastReport = now;
+                    getOut().printf("Checking objects: %d%% (%d/%d)%n",
+                            (i + 1) * 100 / total, i + 1, total);
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new GitletException("Could not check objects.");
+        } finally {
+            pool.shutdown();
+        }
+        return bytes;
+    }
+
+    /** Re-hash the stored chunk CODE.
+     * @param code the chunk's name
+     * @return a description of the corruption, or null if it is sound
+     */
+    private String verifyChunk(String code) {
+        byte[] data = readContents(repo.getChunkStore().file(code));
+        if (!sha1((Object) data).equals(code)) {
+            return "corrupt chunk " + code;
+        }
+        return null;
+    }
+
+    /** Re-read the object NAME and re-hash the contents of its inline
+     *  blobs. Chunked blobs are only checked for missing chunks, as every
+     *  stored chunk is re-hashed on its own.
+     * @param name the object's name
+     * @return a description of the corruption, or null if it is sound
+     */
+    private String verify(String name) {
+        String error = check(name);
+        return error == null ? null
+            : "corrupt object " + name + ": " + error;
+    }
+
+    /** Check the object NAME.
+     * @param name the object's name
+     * @return what is wrong with it, or null if it is sound
+     */
+    private String check(String name) {
+        Serializable obj;
+        try {
+            obj = readObject(join(gitletDir, name), Serializable.class);
+        } catch (IllegalArgumentException e) {
+            return "unreadable";
+        }
+        if (obj instanceof Tag) {
+            Tag tag = (Tag) obj;
+            if (!name.equals(tag.computeSHA1())) {
+                return "tag hashes to " + tag.computeSHA1();
+            }
+            synchronized (parents) {
+                parents.put(name, new String[] {tag.getTarget(), null});
+            }
+            return null;
+        } else if (!(obj instanceof Commit)) {
+            return "unknown object type";
+        }
+        Commit c = (Commit) obj;
+        if (!name.equals(c.getSHA1())) {
+            return "commit id is " + c.getSHA1();
+        }
+        for (Map.Entry<String, Blob> file : c.getTrackedBlobs().entrySet()) {
+            Blob b = file.getValue();
+            if (b == null || !file.getKey().equals(b.getName())) {
+                return "bad entry for " + file.getKey();
+            }
+            if (b.getChunks() != null) {
+                for (String chunk : b.getChunks()) {
+                    if (!repo.getChunkStore().file(chunk).exists()) {
+                        return "blob of " + file.getKey()
+                                + " is missing chunk " + chunk;
+                    }
+                }
+            } else if (!b.isIntact()) {
+                return "blob of " + file.getKey() + " does not match "
+                        + b.getSha1hash();
+            }
+        }
+        synchronized (parents) {
+            parents.put(name, new String[] {c.getParentSHA1(),
+                c.getParent2SHA1()});
+        }
+        return null;
+    }
+
+    /** Find the valid commits reachable from the repository's roots.
+     * @return the reachable commits
+     */
+    private HashSet<String> reachable() {
+        HashSet<String> seen = new HashSet<>();
+        ArrayDeque<String> pending = new ArrayDeque<>(repo.getRoots());
+        while (!pending.isEmpty()) {
+            String code = pending.pop();
+            if (!parents.containsKey(code) || !seen.add(code)) {
+                continue;
+            }
+            for (String parent : parents.get(code)) {
+                if (parent != null) {
+                    pending.push(parent);
+                }
+            }
+        }
+        return seen;
+    }
+
+    /** Print the problem MSG.
+     * @param msg the problem */
+    private void report(String msg) {
+        problems += 1;
+        getOut().println(msg);
+    }
+}
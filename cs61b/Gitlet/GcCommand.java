@@ -0,0 +1,159 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import static gitlet.Utils.*;
+
+/** A command that deletes objects no longer reachable from any branch,
+ *  tag or stash.
+ *  Objects are first marked by walking the commit graph from every root,
+ *  then every unmarked object older than the grace period is swept, along
+ *  with the chunks no reachable commit uses, and the commit graph is
+ *  rewritten without the commits swept.
+ * @author taoxinyyyun
+ */
+public class GcCommand extends Command {
+
+    /** Default grace period, in days, before an unreachable object may be
+     *  removed. */
+    private static final long DEFAULT_GRACE_DAYS = 14;
+
+    /** Milliseconds in a day. */
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    /** Filter out all commits. */
+    private FilenameFilter cFilter = (f, name) -> name.matches("[0-9a-f]{40}");
+
+    /** the constructor.
+     * @param repository the repository
+     * @param arg the arguments */
+    public GcCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** The directory holding the commit objects. */
+    private File gitletDir = repo.getObjectsDirectory();
+
+    /** Return the grace period in milliseconds.
+     * @return the grace period */
+    private long parseGrace() throws GitletException {
+        if (args.length == 1) {
+            return DEFAULT_GRACE_DAYS * DAY;
+        }
+        if (args.length != 2 || !args[1].startsWith("--prune=")) {
+            throw new GitletException("Incorrect operands.");
+        }
+        String value = args[1].substring("--prune=".length());
+        if (value.equals("now")) {
+            return 0;
+        }
+        try {
+            long days = Long.parseLong(value);
+            if (days < 0) {
+                throw new GitletException("Incorrect operands.");
+            }
+            return Math.multiplyExact(days, DAY);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new GitletException("Incorrect operands.");
+        }
+    }
+
+    /** Removes every unreachable object whose last modification is older
+     *  than the grace period, given as gc --prune=DAYS or gc --prune=now. */
+    public void run() throws GitletException {
+        long grace = parseGrace();
+        String[] objects = gitletDir.list(cFilter);
+        Arrays.sort(objects);
+        HashMap<String, Integer> index = new HashMap<>(objects.length * 2);
+        for (int i = 0; i < objects.length; i++) {
+            index.put(objects[i], i);
+        }
+
+        HashSet<String> liveChunks = new HashSet<>();
+        BitSet marked = mark(index, liveChunks);
+
+        long cutoff = System.currentTimeMillis() - grace;
+        int removed = 0;
+        long freed = 0;
+        HashSet<String> kept = new HashSet<>(Arrays.asList(objects));
+        for (int i = marked.nextClearBit(0); i < objects.length;
+             i = marked.nextClearBit(i + 1)) {
+            File f = join(gitletDir, objects[i]);
+            if (f.lastModified() <= cutoff) {
+                long size = f.length();
+                if (f.delete()) {
+                    repo.getCommits().remove(objects[i]);
+                    kept.remove(objects[i]);
+                    removed += 1;
+                    freed += size;
+                }
+            }
+        }
+        repo.getCommitGraph().retain(kept);
+        ChunkStore chunks = repo.getChunkStore();
+        for (String code : chunks.all()) {
+            File f = chunks.file(code);
+            if (!liveChunks.contains(code) && f.lastModified() <= cutoff) {
+                long size = f.length();
+                if (f.delete()) {
+                    removed += 1;
+                    freed += size;
+                }
+            }
+        }
+        getOut().println("Removed " + removed + " unreachable objects ("
+                + freed + " bytes).");
+    }
+
+    /** Mark every object reachable from the repository's roots. Each
+     *  reachable commit is read exactly once.
+     * @param index maps an object's name to its bit
+     * @param chunks collects the chunks of reachable blobs
+     * @return the set of marked objects
+     */
+    private BitSet mark(HashMap<String, Integer> index,
+                        HashSet<String> chunks) {
+        BitSet marked = new BitSet(index.size());
+        ArrayDeque<String> pending = new ArrayDeque<>(repo.getRoots());
+        while (!pending.isEmpty()) {
+            String code = pending.pop();
+            Integer bit = index.get(code);
+            if (bit == null || marked.get(bit)) {
+                continue;
+            }
+            marked.set(bit);
+            Serializable obj = readObject(join(gitletDir, code),
+                    Serializable.class);
+            if (obj instanceof Tag) {
+                pending.push(((Tag) obj).getTarget());
+                continue;
+            }
+            Commit c = (Commit) obj;
+            for (Blob b : c.getTrackedBlobs().values()) {
+                if (b.getChunks() != null) {
+                    chunks.addAll(Arrays.asList(b.getChunks()));
+                }
+            }
+            if (c.getParentSHA1() != null) {
+                pending.push(c.getParentSHA1());
+            }
+            if (c.getParent2SHA1() != null) {
+                pending.push(c.getParent2SHA1());
+            }
+        }
+        return marked;
+    }
+}
@@ -0,0 +1,157 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static gitlet.Utils.*;
+
+/** A handle on the Gitlet repository in one directory, for running
+ *  commands inside another Java program. Unlike Main, it neither exits
+ *  nor depends on the process's working directory: each command returns
+ *  a Result with its output or its error. The repository stays in memory
+ *  between commands, together with the commits already read, and is saved
+ *  after each command that succeeds; after a failure, whether an error
+ *  Main would print or an unexpected exception, it is read back from
+ *  disk, discarding the failed command's changes. A handle assumes it is
+ *  the only writer of its repository and is not safe for use by several
+ *  threads at once; handles on different repositories are independent.
+ * @author taoxinyyyun
+ */
+public final class Gitlet {
+
+    /** What a command printed, and its error if it failed. */
+    public static final class Result {
+        /** The output. */
+        private final String output;
+        /** The error message, or null. */
+        private final String error;
+
+        /** A result with output OUTPUT and error message ERROR.
+         * @param output the output
+         * @param error the error message, or null on success */
+        private Result(String output, String error) {
+            this.output = output;
+            this.error = error;
+        }
+
+        /** Return true iff the command succeeded.
+         * @return true/false */
+        public boolean succeeded() {
+            return error == null;
+        }
+
+        /** Return what the command printed.
+         * @return the output */
+        public String getOutput() {
+            return output;
+        }
+
+        /** Return the message the command failed with, as Main would print
+         *  it, or null if it succeeded.
+         * @return the error message */
+        public String getError() {
+            return error;
+        }
+    }
+
+    /** The gitlet directory. */
+    private final File gitletDir;
+
+    /** The repository, as of the last command. */
+    private Repository repository;
+
+    /** A handle on the repository whose gitlet directory is DIR.
+     * @param dir the gitlet directory
+     * @param repo the repository read from it */
+    private Gitlet(File dir, Repository repo) {
+        gitletDir = dir;
+        repository = repo;
+    }
+
+    /** Open the repository whose working directory is DIR.
+     * @param dir the working directory
+     * @return a handle on it
+     * @throws GitletException if there is no repository there
+     */
+    public static Gitlet open(File dir) {
+        File gitlet = join(dir.getAbsoluteFile(), ".gitlet");
+        if (!join(gitlet, "repository").exists()) {
+            throw new GitletException("Not in an "
+                    + "initialized Gitlet directory.");
+        }
+        return new Gitlet(gitlet, Repository.open(gitlet));
+    }
+
+    /** Create a repository in the working directory DIR.
+     * @param dir the working directory
+     * @return a handle on it
+     * @throws GitletException if there is a repository there already
+     */
+    public static Gitlet init(File dir) {
+        File gitlet = join(dir.getAbsoluteFile(), ".gitlet");
+        if (gitlet.exists()) {
+            throw new GitletException("A Gitlet version-control system "
+                    + "already exists in the current directory.");
+        }
+        dir.mkdirs();
+        Repository repo = new Repository(gitlet,
+                new Commit("initial commit", null, null));
+        repo.save();
+        return new Gitlet(gitlet, repo);
+    }
+
+    /** Return the working directory.
+     * @return the directory */
+    public File getWorkingDirectory() {
+        return repository.getWorkingDirectory();
+    }
+
+    /** Run the command ARGS, as given on the command line after
+     *  "java gitlet.Main". Init and clone are not commands of an open
+     *  repository and fail.
+     * @param args the command and its operands
+     * @return the output, or the error */
+    public Result run(String... args) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, true,
+                StandardCharsets.UTF_8);
+        repository.setOut(out);
+        Stats.reset();
+        try {
+            if (args.length < 1) {
+                throw new GitletException("Please enter a command.");
+            }
+            if (args[0].equals("init") || args[0].equals("clone")) {
+                throw new GitletException("No command with"
+                        + " that name exists.");
+            }
+            Main.dispatch(repository, args);
+            repository.save();
+            return new Result(buffer.toString(StandardCharsets.UTF_8), null);
+        } catch (GitletException e) {
+            reload(true);
+            return new Result(buffer.toString(StandardCharsets.UTF_8),
+                    e.getMessage());
+        } catch (RuntimeException e) {
+            reload(false);
+            return new Result(buffer.toString(StandardCharsets.UTF_8),
+                    e.toString());
+        } finally {
+            repository.setOut(System.out);
+        }
+    }
+
+    /** Read the repository back from disk after a failed command. The
+     *  commits already read are kept only if KEEPCOMMITS, since a command
+     *  that failed unexpectedly may have left them half built.
+     * @param keepCommits whether to keep the commits read */
+    private void reload(boolean keepCommits) {
+        Repository fresh = Repository.open(gitletDir);
+        if (keepCommits) {
+            fresh.keepCommits(repository);
+        }
+        repository = fresh;
+    }
+}
@@ -0,0 +1,243 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static gitlet.Utils.*;
+
+/** The patterns of a .gitletignore file, compiled into a trie over path
+ *  segments. Literal segments are found by hashing, glob segments by a
+ *  small wildcard matcher and ** segments by a node that loops on any
+ *  segment, so a path is matched by one pass over its segments however
+ *  many patterns there are. As in Git, a pattern without a slash matches
+ *  at any depth, a trailing slash matches only directories, a leading !
+ *  re-includes what an earlier pattern excluded, and the last matching
+ *  pattern wins. The same patterns select the paths of a sparse
+ *  checkout.
+ * @author taoxinyyyun
+ */
+class IgnoreRules {
+
+    /** Name of the file holding the patterns. */
+    static final String FILE_NAME = ".gitletignore";
+
+    /** A state of the matcher. */
+    private static class Node {
+        /** Children reached by a literal segment. */
+        private final HashMap<String, Node> literals = new HashMap<>();
+        /** Children reached by a segment matching a glob. */
+        private final HashMap<String, Node> globs = new HashMap<>();
+        /** Child reached by a ** segment, or null. */
+        private Node anyDepth;
+        /** True iff this node was reached by **, and so matches any
+         *  number of further segments. */
+        private boolean loops;
+        /** Patterns that end at this node. */
+        private final ArrayList<Integer> rules = new ArrayList<>();
+    }
+
+    /** The start state. */
+    private final Node root = new Node();
+
+    /** Whether each pattern is negated. */
+    private final ArrayList<Boolean> negated = new ArrayList<>();
+
+    /** Whether each pattern matches only directories. */
+    private final ArrayList<Boolean> dirOnly = new ArrayList<>();
+
+    /** Compile the patterns in the .gitletignore file of DIR, if any.
+     * @param dir the working directory */
+    IgnoreRules(File dir) {
+        File f = join(dir, FILE_NAME);
+        if (f.isFile()) {
+            for (String line : readContentsAsString(f).split("\n")) {
+                add(line.trim());
+            }
+        }
+    }
+
+    /** Compile PATTERNS.
+     * @param patterns the patterns, one per element */
+    IgnoreRules(List<String> patterns) {
+        for (String pattern : patterns) {
+            add(pattern.trim());
+        }
+    }
+
+    /** Add the pattern PATTERN.
+     * @param pattern the pattern */
+    void add(String pattern) {
+        if (pattern.isEmpty() || pattern.startsWith("#")) {
+            return;
+        }
+        boolean neg = pattern.startsWith("!");
+        if (neg) {
+            pattern = pattern.substring(1);
+        }
+        boolean dir = pattern.endsWith("/");
+        if (dir) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+        boolean anchored = pattern.contains("/");
+        if (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+        if (pattern.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        if (!anchored) {
+            node = anyDepth(node);
+        }
+        for (String segment : pattern.split("/")) {
+            if (segment.equals("**")) {
+                node = anyDepth(node);
+            } else if (isGlob(segment)) {
+                node = node.globs.computeIfAbsent(segment, k -> new Node());
+            } else {
+                node = node.literals.computeIfAbsent(segment,
+                    k -> new Node());
+            }
+        }
+        node.rules.add(negated.size());
+        negated.add(neg);
+        dirOnly.add(dir);
+    }
+
+    /** Return true iff the file or directory at PATH, relative to the
+     *  working directory, is matched, either itself or because a directory
+     *  containing it is.
+     * @param path the path, with / between segments
+     * @param isDir whether PATH is a directory
+     * @return true/false
+     */
+    boolean matches(String path, boolean isDir) {
+        String[] segments = path.split("/");
+        List<Node> states = closure(Arrays.asList(root));
+        for (int i = 0; i < segments.length; i++) {
+            states = step(states, segments[i]);
+            boolean last = i == segments.length - 1;
+            if (decide(states, !last || isDir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the states reached from STATES by reading SEGMENT.
+     * @param states the current states
+     * @param segment one segment of a path
+     * @return the next states
+     */
+    private List<Node> step(List<Node> states, String segment) {
+        ArrayList<Node> next = new ArrayList<>();
+        for (Node node : states) {
+            if (node.loops) {
+                next.add(node);
+            }
+            Node lit = node.literals.get(segment);
+            if (lit != null) {
+                next.add(lit);
+            }
+            for (Map.Entry<String, Node> glob
+                    : node.globs.entrySet()) {
+                if (globMatches(glob.getKey(), segment)) {
+                    next.add(glob.getValue());
+                }
+            }
+        }
+        return closure(next);
+    }
+
+    /** Return STATES together with the ** states they lead to without
+     *  reading anything.
+     * @param states some states
+     * @return the closed set of states
+     */
+    private List<Node> closure(List<Node> states) {
+        ArrayList<Node> result = new ArrayList<>();
+        for (Node node : states) {
+            for (Node n = node; n != null && !result.contains(n);
+                 n = n.anyDepth) {
+                result.add(n);
+            }
+        }
+        return result;
+    }
+
+    /** Return true iff the last pattern matched by STATES ignores what was
+     *  read, a directory iff ISDIR.
+     * @param states the matcher's states
+     * @param isDir whether the path read is a directory
+     * @return true/false
+     */
+    private boolean decide(List<Node> states, boolean isDir) {
+        int last = -1;
+        for (Node node : states) {
+            for (int rule : node.rules) {
+                if (rule > last && (isDir || !dirOnly.get(rule))) {
+                    last = rule;
+                }
+            }
+        }
+        return last >= 0 && !negated.get(last);
+    }
+
+    /** Return the ** child of NODE, creating it if needed.
+     * @param node a state
+     * @return its ** child
+     */
+    private static Node anyDepth(Node node) {
+        if (node.anyDepth == null) {
+            node.anyDepth = new Node();
+            node.anyDepth.loops = true;
+        }
+        return node.anyDepth;
+    }
+
+    /** Return true iff SEGMENT contains wildcards.
+     * @param segment a segment of a pattern
+     * @return true/false
+     */
+    private static boolean isGlob(String segment) {
+        return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+    }
+
+    /** Return true iff NAME matches GLOB, in which * matches any run of
+     *  characters and ? any one character.
+     * @param glob the glob
+     * @param name a path segment
+     * @return true/false
+     */
+    static boolean globMatches(String glob, String name) {
+        int g = 0;
+        int n = 0;
+        int star = -1;
+        int mark = 0;
+        while (n < name.length()) {
+            if (g < glob.length() && (glob.charAt(g) == '?'
+                    || glob.charAt(g) == name.charAt(n))) {
+                g += 1;
+                n += 1;
+            } else if (g < glob.length() && glob.charAt(g) == '*') {
+                star = g;
+                mark = n;
+                g += 1;
+            } else if (star >= 0) {
+                g = star + 1;
+                mark += 1;
+                n = mark;
+            } else {
+                return false;
+            }
+        }
+        while (g < glob.length() && glob.charAt(g) == '*') {
+            g += 1;
+        }
+        return g == glob.length();
+    }
+}
@@ -0,0 +1,147 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** Line-oriented diffing of two versions of a file, using Myers' O(ND)
+ *  algorithm on the lines left after trimming the common prefix and
+ *  suffix. Lines are interned to ints first so that the inner loop never
+ *  compares strings.
+ * @author taoxinyyyun
+ */
+class LineDiff {
+
+    /** Split CONTENTS into lines, dropping the empty line after a final
+     *  newline.
+     * @param contents the contents of a file
+     * @return its lines
+     */
+    static String[] lines(byte[] contents) {
+        String text = new String(contents);
+        if (text.isEmpty()) {
+            return new String[0];
+        }
+        String[] result = text.split("\n", -1);
+        if (text.endsWith("\n")) {
+            return Arrays.copyOf(result, result.length - 1);
+        }
+        return result;
+    }
+
+    /** Match the lines of NEWER against those of OLDER along a shortest
+     *  edit script.
+     * @param older the old version
+     * @param newer the new version
+     * @return for each line of NEWER, the index of the line of OLDER it
+     *         was kept from, or -1 if it was inserted
+     */
+    static int[] match(String[] older, String[] newer) {
+        HashMap<String, Integer> ids = new HashMap<>();
+        int[] a = intern(older, ids);
+        int[] b = intern(newer, ids);
+        int[] result = new int[b.length];
+        Arrays.fill(result, -1);
+
+        int prefix = 0;
+        while (prefix < a.length && prefix < b.length
+                && a[prefix] == b[prefix]) {
+            result[prefix] = prefix;
+            prefix += 1;
+        }
+        int suffix = 0;
+        while (suffix < a.length - prefix && suffix < b.length - prefix
+                && a[a.length - 1 - suffix] == b[b.length - 1 - suffix]) {
+            result[b.length - 1 - suffix] = a.length - 1 - suffix;
+            suffix += 1;
+        }
+        myers(a, prefix, a.length - suffix, b, prefix, b.length - suffix,
+                result);
+        return result;
+    }
+
+    /** Replace each line in LINES by a small integer, equal lines getting
+     *  equal integers.
+     * @param lines the lines
+     * @param ids the ids assigned so far
+     * @return the interned lines
+     */
+    private static int[] intern(String[] lines, HashMap<String, Integer> ids) {
+        int[] result = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            Integer id = ids.get(lines[i]);
+            if (id == null) {
+                id = ids.size();
+                ids.put(lines[i], id);
+            }
+            result[i] = id;
+        }
+        return result;
+    }
+
+    /** Record in RESULT the matches of a shortest edit script between
+     *  A[ALO..AHI) and B[BLO..BHI).
+     * @param a the old lines
+     * @param alo start of the old range
+     * @param ahi end of the old range
+     * @param b the new lines
+     * @param blo start of the new range
+     * @param bhi end of the new range
+     * @param result the matches, indexed by new line
+     */
+    private static void myers(int[] a, int alo, int ahi, int[] b, int blo,
+                              int bhi, int[] result) {
+        int n = ahi - alo;
+        int m = bhi - blo;
+        if (n == 0 || m == 0) {
+            return;
+        }
+        int max = n + m;
+        int[] v = new int[2 * max + 2];
+        ArrayList<int[]> trace = new ArrayList<>();
+        int end = -1;
+        for (int d = 0; d <= max && end < 0; d++) {
+            trace.add(Arrays.copyOfRange(v, max - d, max + d + 2));
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[max + k - 1] < v[max + k + 1])) {
+                    x = v[max + k + 1];
+                } else {
+                    x = v[max + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && a[alo + x] == b[blo + y]) {
+                    x += 1;
+                    y += 1;
+                }
+                v[max + k] = x;
+                if (x >= n && y >= m) {
+                    end = d;
+                    break;
+                }
+            }
+        }
+
+        int x = n;
+        int y = m;
+        for (int d = end; d >= 0; d--) {
+            int[] prev = trace.get(d);
+            int k = x - y;
+            int prevK;
+            if (k == -d || (k != d && prev[k - 1 + d] < prev[k + 1 + d])) {
+                prevK = k + 1;
+            } else {
+                prevK = k - 1;
+            }
+            int prevX = prev[prevK + d];
+            int prevY = prevX - prevK;
+            while (x > prevX && y > prevY) {
+                x -= 1;
+                y -= 1;
+                result[blo + y] = alo + x;
+            }
+            x = prevX;
+            y = prevY;
+        }
+    }
+}
@@ -10,9 +10,6 @@ import static gitlet.Utils.*;
  */
 public class LogCommand extends Command {
 
-    /** The gitlet repository. */
-    private File gitletDir = new File(".gitlet/");
-
     /** the constructor.
      * @param repository the repository
      * @param arg the arguments */
@@ -31,27 +28,59 @@ public class LogCommand extends Command {
      * following the first parent commit links, ignoring any second parents
      * found in merge commits. For every node in this history, the information
      * it should display is the commit id, the time the commit was made,
-     * and the commit message.
+     * and the commit message. With log -- FILE, only the commits that
+     * changed FILE are displayed.
      */
     public void run() {
         String currBranch = repo.getActiveBranch();
         String currCode = repo.getBranches().get(currBranch);
+        if (args.length == 3) {
+            runPath(currCode, args[2]);
+            return;
+        }
         Commit currCommit = repo.getCommit(currCode);
 
         while (currCommit != null) {
-            System.out.println("===");
-            System.out.println("commit " + currCommit.getSHA1());
-            if (currCommit.getParent2SHA1() != null) {
-                String first = currCommit.getParentSHA1().substring(0, 7);
-                String second = currCommit.getParent2SHA1().substring(0, 7);
-                System.out.println("Merge: " + first + " " + second);
-            }
-            System.out.println("Date: " + currCommit.getDate());
-            System.out.println(currCommit.getMessage() + "\n");
+            display(currCommit);
+            currCommit = repo.getParent(currCommit);
+        }
+
+    }
 
-            currCommit = currCommit.getParent();
+    /** Display the commits on the first-parent history of CODE that
+     *  changed FILE. Commits whose changed-path filter rules FILE out are
+     *  passed over through the commit graph without being read.
+     * @param code the SHA1 code of the newest commit
+     * @param file the file's name
+     */
+    private void runPath(String code, String file) {
+        CommitGraph graph = repo.getCommitGraph();
+        while (code != null) {
+            CommitGraph.Entry entry = graph.get(code);
+            if (entry != null && !entry.mayHaveChanged(file)) {
+                code = entry.getParent();
+                continue;
+            }
+            Commit c = repo.getCommit(code);
+            if (repo.changedFile(c, file)) {
+                display(c);
+            }
+            code = c.getParentSHA1();
         }
+    }
 
+    /** Display the id, date and message of C.
+     * @param c the commit */
+    private void display(Commit c) {
+        getOut().println("===");
+        getOut().println("commit " + c.getSHA1());
+        if (c.getParent2SHA1() != null) {
+            String first = c.getParentSHA1().substring(0, 7);
+            String second = c.getParent2SHA1().substring(0, 7);
+            getOut().println("Merge: " + first + " " + second);
+        }
+        getOut().println("Date: " + c.getDate());
+        getOut().println(c.getMessage() + "\n");
     }
 
     /** Displays the global log. */
@@ -61,17 +90,9 @@ public class LogCommand extends Command {
             return;
         }
         for (String com : commits) {
-            File commit = join(gitletDir, com);
+            File commit = repo.objectFile(com);
             Commit c = readObject(commit, Commit.class);
-            System.out.println("===");
-            System.out.println("commit " + c.getSHA1());
-            if (c.getParent2SHA1() != null) {
-                String first = c.getParentSHA1().substring(0, 7);
-                String second = c.getParent2SHA1().substring(0, 7);
-                System.out.println("Merge: " + first + " " + second);
-            }
-            System.out.println("Date: " + c.getDate());
-            System.out.println(c.getMessage() + "\n");
+            display(c);
         }
     }
 
@@ -12,16 +12,17 @@ public class Main {
     /** Usage: java gitlet.Main ARGS, where ARGS contains
      *  <COMMAND> <OPERAND> .... */
     public static void main(String... args) {
+        args = Stats.init(args);
         try {
             if (args.length < 1) {
                 throw new GitletException("Please enter a command.");
             }
-            boolean commandExists = false;
             String command = args[0];
             Repository repository;
-            File workingDirectory = new File(System.getProperty("user.dir"));
-            File gitletDirectory = new File(".gitlet/");
-            if (!command.equals("init") && !isInitialized()) {
+            File gitletDirectory = join(System.getProperty("user.dir"),
+                    ".gitlet");
+            if (!command.equals("init") && !command.equals("clone")
+                    && !isInitialized()) {
                 throw new GitletException("Not in an "
                         + "initialized Gitlet directory.");
             }
@@ -31,51 +32,77 @@ public class Main {
                             + "already exists in the current directory.");
                 }
                 Commit initial = new Commit("initial commit", null, null);
-                repository = new Repository(initial);
-                File repo = join(gitletDirectory, "repository");
-                Utils.writeObject(repo, repository);
-            } else {
-                File r = join(gitletDirectory, "repository");
-                repository = readObject(r, Repository.class);
-                if (command.equals("add")) {
-                    checkArguments1(args);
-                    commandExists = true;
-                    File toAdd = join(workingDirectory, args[1]);
-                    AddRemoveCommand add = new AddRemoveCommand(repository,
-                            args, toAdd);
-                    add.run();
-                } else if (command.equals("commit")) {
-                    checkArguments1(args);
-                    commandExists = true;
-                    CommitCommand commit = new CommitCommand(repository, args);
-                    commit.run();
-                } else if (command.equals("checkout")) {
-                    commandExists = true;
-                    CheckOutCommand checkout = new CheckOutCommand(repository,
-                            args);
-                    checkout.run();
-                }
-                if (mainHelper(command, repository, args)) {
-                    commandExists = true;
+                repository = new Repository(gitletDirectory, initial);
+                repository.save();
+            } else if (command.equals("clone")) {
+                if (args.length != 4 || !"--local".equals(args[1])) {
+                    throw new GitletException("Incorrect operands.");
                 }
-                if (!commandExists) {
-                    throw new GitletException("No command with"
-                            + " that name exists.");
+                File source = join(args[2], ".gitlet");
+                if (!join(source, "repository").exists()) {
+                    throw new GitletException("No Gitlet version-control "
+                            + "system exists in the source directory.");
                 }
-                File repo = join(gitletDirectory, "repository");
-                writeObject(repo, repository);
+                repository = Repository.open(source);
+                CloneCommand clone = new CloneCommand(repository, args);
+                clone.run();
+            } else {
+                repository = Repository.open(gitletDirectory);
+                dispatch(repository, args);
+                repository.save();
             }
+            Stats.report(command);
         } catch (GitletException e) {
             System.out.println(e.getMessage());
+            Stats.report(args.length > 0 ? args[0] : null);
             System.exit(0);
         }
     }
 
+    /** Run the command ARGS, other than init and clone, on REPOSITORY
+     *  without saving it.
+     * @param repository the repo
+     * @param args the command line
+     * @throws GitletException
+     */
+    public static void dispatch(Repository repository, String[] args)
+            throws GitletException {
+        String command = args[0];
+        boolean commandExists = false;
+        File workingDirectory = repository.getWorkingDirectory();
+        if (command.equals("add")) {
+            checkArguments1(args);
+            commandExists = true;
+            File toAdd = join(workingDirectory, args[1]);
+            AddRemoveCommand add = new AddRemoveCommand(repository,
+                    args, toAdd);
+            add.run();
+        } else if (command.equals("commit")) {
+            checkArguments1(args);
+            commandExists = true;
+            CommitCommand commit = new CommitCommand(repository, args);
+            commit.run();
+        } else if (command.equals("checkout")) {
+            commandExists = true;
+            CheckOutCommand checkout = new CheckOutCommand(repository,
+                    args);
+            checkout.run();
+        }
+        if (mainHelper(command, repository, args)) {
+            commandExists = true;
+        }
+        if (!commandExists) {
+            throw new GitletException("No command with"
+                    + " that name exists.");
+        }
+    }
+
     /** Check if a gitlet repository is initialized.
      * @return true/false
      */
     public static boolean isInitialized() {
-        File gitletDirectory = new File(".gitlet/");
+        File gitletDirectory = join(System.getProperty("user.dir"),
+                ".gitlet");
         if (gitletDirectory.exists()) {
             return true;
         }
@@ -107,10 +134,12 @@ public class Main {
      */
     public static boolean mainHelper(String command, Repository repository,
                                      String[] args) throws GitletException {
-        File workingDirectory = new File(System.getProperty("user.dir"));
+        File workingDirectory = repository.getWorkingDirectory();
         boolean commandExists = false;
         if (command.equals("log")) {
-            checkArguments0(args);
+            if (args.length != 3 || !args[1].equals("--")) {
+                checkArguments0(args);
+            }
             commandExists = true;
             LogCommand log = new LogCommand(repository, args);
             log.run();
@@ -132,7 +161,9 @@ public class Main {
             StatusCommand status = new StatusCommand(repository, args);
             status.run();
         } else if (command.equals("find")) {
-            checkArguments1(args);
+            if (args.length != 3 || !args[1].equals("--touching")) {
+                checkArguments1(args);
+            }
             commandExists = true;
             FindCommand find = new FindCommand(repository, args);
             find.run();
@@ -156,6 +187,60 @@ public class Main {
             commandExists = true;
             MergeCommand merge = new MergeCommand(repository, args);
             merge.run();
+        } else if (command.equals("gc")) {
+            commandExists = true;
+            GcCommand gc = new GcCommand(repository, args);
+            gc.run();
+        } else if (command.equals("fsck")) {
+            checkArguments0(args);
+            commandExists = true;
+            FsckCommand fsck = new FsckCommand(repository, args);
+            fsck.run();
+        } else if (command.equals("blame")) {
+            checkArguments1(args);
+            commandExists = true;
+            BlameCommand blame = new BlameCommand(repository, args);
+            blame.run();
+        } else if (command.equals("stash")) {
+            commandExists = true;
+            StashCommand stash = new StashCommand(repository, args);
+            stash.run();
+        } else if (command.equals("worktree")) {
+            commandExists = true;
+            WorktreeCommand worktree = new WorktreeCommand(repository, args);
+            worktree.run();
+        } else if (command.equals("cherry-pick")) {
+            checkArguments1(args);
+            commandExists = true;
+            CherryPickCommand pick = new CherryPickCommand(repository, args);
+            pick.run();
+        } else if (command.equals("rebase")) {
+            checkArguments1(args);
+            commandExists = true;
+            RebaseCommand rebase = new RebaseCommand(repository, args);
+            rebase.run();
+        } else if (command.equals("tag")) {
+            commandExists = true;
+            TagCommand tag = new TagCommand(repository, args);
+            tag.run();
+        } else if (command.equals("fast-export")) {
+            commandExists = true;
+            FastExportCommand export = new FastExportCommand(repository, args);
+            export.run();
+        } else if (command.equals("fast-import")) {
+            commandExists = true;
+            FastImportCommand fastImport = new FastImportCommand(repository,
+                    args);
+            fastImport.run();
+        } else if (command.equals("sparse-checkout")) {
+            commandExists = true;
+            SparseCheckoutCommand sparse = new SparseCheckoutCommand(
+                    repository, args);
+            sparse.run();
+        } else if (command.equals("reflog")) {
+            commandExists = true;
+            ReflogCommand reflog = new ReflogCommand(repository, args);
+            reflog.run();
         }
         return commandExists;
     }
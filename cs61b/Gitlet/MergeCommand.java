@@ -1,6 +1,7 @@
 package gitlet;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.io.File;
@@ -24,8 +25,8 @@ public class MergeCommand extends CheckOutCommand {
     /** The arguments.*/
     private String[] args = getArgs();
 
-    /** The current working directory. */
-    private File workingDirectory = new File(System.getProperty("user.dir"));
+    /** The working directory. */
+    private File workingDirectory = repo.getWorkingDirectory();
 
     /** execute the command.
      * @throws GitletException
@@ -54,14 +55,14 @@ public class MergeCommand extends CheckOutCommand {
         Commit splitCommit = findSplit(currCommit, givenCommit);
 
         if (splitCommit.getSHA1().equals(givenCommit.getSHA1())) {
-            System.out.println("Given branch is an ancestor of "
+            getOut().println("Given branch is an ancestor of "
                     + "the current branch.");
         } else if (splitCommit.getSHA1().equals(currCommit.getSHA1())) {
             checkout3(branchName);
-            System.out.println("Current branch fast-forwarded.");
+            getOut().println("Current branch fast-forwarded.");
         } else {
             if (!mergeCommit(splitCommit, currCommit, givenCommit)) {
-                System.out.println("Encountered a merge conflict.");
+                getOut().println("Encountered a merge conflict.");
             }
             commitMerge(activeBranch, branchName, currCommit, givenCommit);
         }
@@ -85,9 +86,9 @@ public class MergeCommand extends CheckOutCommand {
     public void buildVisitedChain(Commit node, HashMap<String, Commit> chain) {
         if (node != null) {
             chain.put(node.getSHA1(), node);
-            buildVisitedChain(node.getParent(), chain);
+            buildVisitedChain(repo.getParent(node), chain);
             if (node.getParent2SHA1() != null) {
-                buildVisitedChain(node.getSecParent(), chain);
+                buildVisitedChain(repo.getSecParent(node), chain);
             }
         }
     }
@@ -98,18 +99,19 @@ public class MergeCommand extends CheckOutCommand {
      * @return the split point
      */
     public Commit findVisited(Commit node, HashMap<String, Commit> chain) {
-        if (node.getParent() == null) {
+        if (node.getParentSHA1() == null) {
             return node;
         } else if (chain.containsKey(node.getSHA1())) {
             return node;
-        } else if (node.getSecParent() != null) {
-            return node.getSecParent();
+        } else if (node.getParent2SHA1() != null) {
+            return repo.getSecParent(node);
         } else {
-            return findVisited(node.getParent(), chain);
+            return findVisited(repo.getParent(node), chain);
         }
     }
 
-    /** Merge the two given commits. Return true if the merge is clean.
+    /** Merge the two given commits into the working directory, staging
+     *  the result. Return true if the merge is clean.
      * @param split the split point
      * @param curr the current head commit
      * @param given the given head commit
@@ -117,53 +119,120 @@ public class MergeCommand extends CheckOutCommand {
      */
     public boolean mergeCommit(Commit split, Commit curr,
                                Commit given) throws GitletException {
-        HashMap<String, Blob> currDiff =
-                findModifications(split.getTrackedBlobs(),
-                curr.getTrackedBlobs());
-        HashMap<String, Blob> givenDiff =
-                findModifications(split.getTrackedBlobs(),
-                given.getTrackedBlobs());
-
-        Set<String> conflictingFiles = currDiff.keySet();
-        conflictingFiles.retainAll(givenDiff.keySet());
-
-        for (String f : givenDiff.keySet()) {
-            File check = join(workingDirectory, f);
-            if (!curr.getTrackedBlobs().containsKey(f) && check.exists()) {
+        HashSet<String> conflicts = new HashSet<>();
+        HashMap<String, Blob> currFiles = curr.getTrackedBlobs();
+        HashMap<String, Blob> merged = mergeTrees(split.getTrackedBlobs(),
+                currFiles, given.getTrackedBlobs(), conflicts);
+        long start = Stats.start();
+        HashMap<String, Blob> changes = findModifications(currFiles, merged);
+        Stats.stop(Stats.DIFF, start);
+
+        IgnoreRules ignore = repo.getIgnoreRules();
+        for (Map.Entry<String, Blob> change : changes.entrySet()) {
+            File check = join(workingDirectory, change.getKey());
+            if (change.getValue() != null
+                    && !currFiles.containsKey(change.getKey())
+                    && repo.inSparseCheckout(change.getKey())
+                    && check.exists()
+                    && !ignore.matches(change.getKey(), false)) {
                 throw new GitletException("There is an untracked file in "
                         + "the way; delete it, or add and commit it first.");
             }
         }
 
+        for (Map.Entry<String, Blob> change : changes.entrySet()) {
+            String name = change.getKey();
+            Blob b = change.getValue();
+            if (b == null || conflicts.contains(name)
+                    || isCheckedOut(name, currFiles)) {
+                restoreFile(b, name);
+            }
+            if (b != null) {
+                File stageFile = join(repo.getStaging(), name);
+                b.writeTo(stageFile);
+                Stats.written(b.getSize());
+            } else {
+                repo.getRemoveFiles().put(name, join(workingDirectory, name));
+            }
+        }
+        return conflicts.isEmpty();
+    }
+
+    /** Merge the snapshot GIVEN into CURR in memory, relative to their
+     *  common ancestor SPLIT. Files renamed on one side are renamed on the
+     *  other before the snapshots are compared, so that edits follow them.
+     *  None of the arguments are modified.
+     * @param split blobs of the split point
+     * @param curr blobs of the current side
+     * @param given blobs of the given side
+     * @param conflicts collects the names of conflicted files
+     * @return the merged blobs
+     */
+    public HashMap<String, Blob> mergeTrees(HashMap<String, Blob> split,
+                                            HashMap<String, Blob> curr,
+                                            HashMap<String, Blob> given,
+                                            Set<String> conflicts) {
+        long start = Stats.start();
+        HashMap<String, Blob> base = new HashMap<>(split);
+        HashMap<String, Blob> ours = new HashMap<>(curr);
+        HashMap<String, Blob> theirs = new HashMap<>(given);
+        followRenames(RenameDetector.detect(base, ours), base, theirs);
+        followRenames(RenameDetector.detect(base, theirs), base, ours);
+
+        HashMap<String, Blob> currDiff = findModifications(base, ours);
+        HashMap<String, Blob> givenDiff = findModifications(base, theirs);
+
+        HashMap<String, Blob> merged = ours;
         for (Map.Entry<String, Blob> toCheck : givenDiff.entrySet()) {
-            if (!conflictingFiles.contains(toCheck.getKey())) {
-                String name = toCheck.getKey();
-                if (toCheck.getValue() != null) {
-                    restoreFile(toCheck.getValue(), name);
-                    File stageFile = join(repo.getStaging(), name);
-                    byte[] modification = toCheck.getValue().getContents();
-                    writeContents(stageFile, (Object) modification);
+            String name = toCheck.getKey();
+            Blob givenBlob = toCheck.getValue();
+            if (!currDiff.containsKey(name)) {
+                if (givenBlob != null) {
+                    merged.put(name, givenBlob);
                 } else {
-                    File rm = join(workingDirectory, name);
-                    repo.getRemoveFiles().put(name, rm);
-                    restoreFile(toCheck.getValue(), name);
+                    merged.remove(name);
                 }
+                continue;
             }
-        }
-
-        for (String conflict : conflictingFiles) {
-            Blob currBlob = currDiff.get(conflict);
-            Blob givenBlob = givenDiff.get(conflict);
+            Blob currBlob = currDiff.get(name);
             if (currBlob == null && givenBlob == null) {
-                conflictingFiles.remove(conflict);
+                continue;
             } else if (currBlob != null && givenBlob != null
                     && currBlob.getSha1hash().equals(givenBlob.getSha1hash())) {
-                conflictingFiles.remove(conflict);
-            } else {
-                solveConflict(conflict, currBlob, givenBlob);
+                continue;
+            }
+            merged.put(name, solveConflict(name, currBlob, givenBlob));
+            conflicts.add(name);
+        }
+        Stats.stop(Stats.DIFF, start);
+        return merged;
+    }
+
+    /** Carry the renames in MOVES over to BASE and OTHER, for each file
+     *  that OTHER still has under its old name. Renames that clash with a
+     *  file OTHER already has under the new name are left alone.
+     * @param moves maps new names to old names on one side
+     * @param base blobs of the split point
+     * @param other blobs of the other side
+     * @return the renames carried over
+     */
+    private HashMap<String, String> followRenames(HashMap<String, String>
+                                                  moves,
+                                                  HashMap<String, Blob> base,
+                                                  HashMap<String, Blob>
+                                                  other) {
+        HashMap<String, String> applied = new HashMap<>();
+        for (Map.Entry<String, String> move : moves.entrySet()) {
+            String to = move.getKey();
+            String from = move.getValue();
+            if (base.containsKey(from) && other.containsKey(from)
+                    && !base.containsKey(to) && !other.containsKey(to)) {
+                base.put(to, base.remove(from).named(to));
+                other.put(to, other.remove(from).named(to));
+                applied.put(to, from);
             }
         }
-        return conflictingFiles.isEmpty();
+        return applied;
     }
 
     /** Return files that are modified in the current commit.
@@ -190,21 +259,19 @@ public class MergeCommand extends CheckOutCommand {
     }
 
     /** Any files modified in different ways in the current and given
-     * branches are in conflict. In this case, replace the contents
-     * of the conflicted file and stage the result.
+     * branches are in conflict. In this case, the conflicted file holds
+     * both versions between conflict markers.
      * @param fileName name of file
      * @param curr current blob
      * @param given given blob
+     * @return the blob of the conflicted file
      */
-    public void solveConflict(String fileName, Blob curr, Blob given) {
+    public Blob solveConflict(String fileName, Blob curr, Blob given) {
         String currentData = curr != null ? new String(curr.getContents()) : "";
         String givenData = given != null ? new String(given.getContents()) : "";
         String newData = "<<<<<<< HEAD\n" + currentData
                 + "=======\n" + givenData + ">>>>>>>\n";
-        File f = join(workingDirectory, fileName);
-        writeContents(f, newData);
-        File s = join(repo.getStaging(), fileName);
-        writeContents(s, newData);
+        return new Blob(newData.getBytes(), fileName);
     }
 
     /** Perform the commit for the merge.
@@ -217,17 +284,17 @@ public class MergeCommand extends CheckOutCommand {
                             Commit c1, Commit c2) {
         String message = "Merged " + newBranch
                 + " into " + currBranch + ".";
-        String p1 = c1.getSHA1();
-        String p2 = c2.getSHA1();
         HashMap<String, File> removed = repo.getRemoveFiles();
-        Commit newCommit = new Commit(message, p1, p2);
+        Commit newCommit = new Commit(message, c1, c2);
         HashMap<String, Blob> trackedFiles = newCommit.getTrackedBlobs();
+        trackedFiles.clear();
+        trackedFiles.putAll(c1.getTrackedBlobs());
 
         File[] stagingFiles = repo.getStaging().listFiles();
         if (stagingFiles != null) {
             for (File f : stagingFiles) {
                 String name = f.getName();
-                Blob newFile = new Blob(f, name);
+                Blob newFile = new Blob(f, name, repo.getChunkStore());
                 if (trackedFiles.containsKey(name)) {
                     trackedFiles.replace(name, newFile);
                 } else {
@@ -237,16 +304,14 @@ public class MergeCommand extends CheckOutCommand {
             }
         }
 
-        for (Map.Entry<String, File> removeFile : removed.entrySet()) {
-            String name = removeFile.getKey();
+        for (String name : removed.keySet()) {
             trackedFiles.remove(name);
-            removed.remove(name);
         }
+        removed.clear();
 
         String newSHA1 = newCommit.getSHA1();
-        repo.getBranches().put(currBranch, newSHA1);
+        repo.setBranch(currBranch, newSHA1, "merge " + newBranch);
         repo.getCommits().add(newSHA1);
-        File commit = new File(".gitlet/" + newSHA1);
-        writeObject(commit, newCommit);
+        repo.writeObjectFile(newSHA1, newCommit);
     }
 }
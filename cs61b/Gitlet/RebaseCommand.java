@@ -0,0 +1,96 @@
+package gitlet;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import static gitlet.Utils.*;
+
+/** A command that replays the commits of the current branch on top of
+ *  another branch. Each commit is merged in memory against the snapshot
+ *  built so far, so the working directory is only written once, when the
+ *  rebased head is checked out. If any commit conflicts, nothing is
+ *  written and the branch stays where it was.
+ * @author taoxinyyyun
+ */
+public class RebaseCommand extends MergeCommand {
+
+    /** the constructor.
+     * @param repository the repository
+     * @param arg the arguments */
+    public RebaseCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** execute the command.
+     * @throws GitletException
+     */
+    @Override
+    public void run() throws GitletException {
+        String branchName = args[1];
+        File[] staged = repo.getStagedFiles();
+        HashMap<String, File> removed = repo.getRemoveFiles();
+        if (staged.length != 0 || !removed.isEmpty()) {
+            throw new GitletException("You have uncommitted changes.");
+        }
+        String upstreamCode = repo.getBranch(branchName);
+        String activeBranch = repo.getActiveBranch();
+        if (branchName.equals(activeBranch)) {
+            throw new GitletException("Cannot rebase a branch onto itself.");
+        }
+        Commit currCommit = repo.getHeadCommit();
+        Commit upstream = repo.getCommit(upstreamCode);
+        Commit splitCommit = findSplit(currCommit, upstream);
+        if (splitCommit.getSHA1().equals(upstream.getSHA1())) {
+            getOut().println("Current branch is up to date.");
+            return;
+        }
+
+        ArrayList<Commit> toReplay = new ArrayList<>();
+        for (Commit c = currCommit;
+             !c.getSHA1().equals(splitCommit.getSHA1())
+                 && c.getParentSHA1() != null;
+             c = repo.getParent(c)) {
+            toReplay.add(c);
+        }
+        Collections.reverse(toReplay);
+
+        String date = new SimpleDateFormat("E MMM d HH:mm:ss yyyy Z")
+                .format(new Date());
+        ArrayList<Commit> replayed = new ArrayList<>();
+        Commit newHead = upstream;
+        for (Commit c : toReplay) {
+            HashSet<String> conflicts = new HashSet<>();
+            HashMap<String, Blob> merged = mergeTrees(
+                    repo.getParent(c).getTrackedBlobs(),
+                    newHead.getTrackedBlobs(), c.getTrackedBlobs(),
+                    conflicts);
+            if (!conflicts.isEmpty()) {
+                throw new GitletException("Encountered a merge conflict "
+                        + "replaying " + c.getSHA1().substring(0, 7)
+                        + "; the branch was not rebased.");
+            }
+            newHead = new Commit(c.getMessage(), date, newHead.getSHA1(),
+                    null, merged);
+            replayed.add(newHead);
+        }
+
+        for (Commit c : replayed) {
+            repo.getCommits().add(c.getSHA1());
+            repo.writeObjectFile(c.getSHA1(), c);
+        }
+        checkoutCommit(newHead.getSHA1());
+        repo.setBranch(activeBranch, newHead.getSHA1(),
+                "rebase: onto " + branchName);
+    }
+}
@@ -0,0 +1,228 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/** Append-only logs of the values each branch head has had. Every entry
+ *  is a fixed-size binary record of the old and new SHA1 codes, the time
+ *  and the command that moved the branch, so a log can be read backwards,
+ *  newest entry first, without scanning it. When a log outgrows MAX_SIZE
+ *  it is rotated into a single older generation, kept in a directory of
+ *  its own so that it cannot be mistaken for the log of another branch.
+ *  This bounds each branch's history to twice MAX_SIZE.
+ * @author taoxinyyyun
+ */
+class RefLog {
+
+    /** Bytes in one binary SHA1 code. */
+    private static final int CODE_BYTES = 20;
+
+    /** Most bytes of a command description that are kept. Longer
+     *  descriptions are cut at the last whole UTF-8 character that fits. */
+    private static final int COMMAND_BYTES = 79;
+
+    /** Bytes in one record: old code, new code, time, command length and
+     *  command. */
+    static final int RECORD = 2 * CODE_BYTES + 8 + 1 + COMMAND_BYTES;
+
+    /** Size, in bytes, at which a log is rotated. */
+    static final long MAX_SIZE = RECORD * 8192L;
+
+    /** An all-zero SHA1, recorded when a branch did not or no longer
+     *  exists. */
+    static final String NONE = "0000000000000000000000000000000000000000";
+
+    /** One change of a branch head. */
+    static class Entry {
+        /** The branch's previous and new head. */
+        private final String oldCode, newCode;
+        /** When the change was made, in milliseconds since the epoch. */
+        private final long time;
+        /** The command that made it. */
+        private final String command;
+
+        /** Create an entry.
+         * @param old the previous head
+         * @param now the new head
+         * @param time the time of the change
+         * @param command the command that made it */
+        Entry(String old, String now, long time, String command) {
+            this.oldCode = old;
+            this.newCode = now;
+            this.time = time;
+            this.command = command;
+        }
+
+        /** Get the previous head.
+         * @return its SHA1 code */
+        String getOld() {
+            return oldCode;
+        }
+
+        /** Get the new head.
+         * @return its SHA1 code */
+        String getNew() {
+            return newCode;
+        }
+
+        /** Get the time of the change.
+         * @return milliseconds since the epoch */
+        long getTime() {
+            return time;
+        }
+
+        /** Get the command that made the change.
+         * @return its description */
+        String getCommand() {
+            return command;
+        }
+    }
+
+    /** The directory holding the logs. */
+    private File dir;
+
+    /** The directory holding the rotated logs, beside DIR. */
+    private File olderDir;
+
+    /** The logs kept in DIR.
+     * @param logDir the directory holding the logs */
+    RefLog(File logDir) {
+        dir = logDir;
+        olderDir = new File(logDir.getParentFile(),
+                logDir.getName() + ".old");
+    }
+
+    /** Record that BRANCH moved from OLD to NOW through COMMAND.
+     * @param branch the branch
+     * @param old its previous head, or null if it is new
+     * @param now its new head, or null if it was deleted
+     * @param command a description of the command */
+    void append(String branch, String old, String now, String command)
+        throws GitletException {
+        File log = join(dir, branch);
+        log.getParentFile().mkdirs();
+        if (log.length() >= MAX_SIZE) {
+            File older = join(olderDir, branch);
+            older.getParentFile().mkdirs();
+            older.delete();
+            log.renameTo(older);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(RECORD);
+        buf.put(toBytes(old == null ? NONE : old));
+        buf.put(toBytes(now == null ? NONE : now));
+        buf.putLong(System.currentTimeMillis());
+        byte[] text = command.getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(text.length, COMMAND_BYTES);
+        while (len < text.length && (text[len] & 0xc0) == 0x80) {
+            len -= 1;
+        }
+        buf.put((byte) len);
+        buf.put(text, 0, len);
+        try (RandomAccessFile out = new RandomAccessFile(log, "rw")) {
+            out.seek(out.length() - out.length() % RECORD);
+            out.write(buf.array());
+        } catch (IOException e) {
+            throw new GitletException("Could not write the reflog.");
+        }
+    }
+
+    /** Return up to LIMIT of the most recent entries for BRANCH, newest
+     *  first.
+     * @param branch the branch
+     * @param limit the most entries to read
+     * @return the entries */
+    List<Entry> read(String branch, int limit) throws GitletException {
+        ArrayList<Entry> result = new ArrayList<>();
+        readBackwards(join(dir, branch), limit, result);
+        readBackwards(join(olderDir, branch), limit, result);
+        return result;
+    }
+
+    /** Return the names of the branches that have logs.
+     * @return the names */
+    List<String> branches() {
+        ArrayList<String> names = new ArrayList<>();
+        collect(dir, "", names);
+        return names;
+    }
+
+    /** Add to NAMES the logs in D, whose names start with PREFIX.
+     * @param d a directory of logs
+     * @param prefix the branch name prefix of D
+     * @param names the names found so far */
+    private void collect(File d, String prefix, List<String> names) {
+        File[] files = d.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File f : files) {
+            if (f.isDirectory()) {
+                collect(f, prefix + f.getName() + "/", names);
+            } else {
+                names.add(prefix + f.getName());
+            }
+        }
+    }
+
+    /** Append to RESULT the records of LOG, last first, until it holds
+     *  LIMIT entries.
+     * @param log a log file
+     * @param limit the most entries wanted
+     * @param result the entries read so far */
+    private void readBackwards(File log, int limit, List<Entry> result)
+        throws GitletException {
+        if (!log.exists() || result.size() >= limit) {
+            return;
+        }
+        byte[] record = new byte[RECORD];
+        try (RandomAccessFile in = new RandomAccessFile(log, "r")) {
+            for (long pos = in.length() - in.length() % RECORD - RECORD;
+                 pos >= 0 && result.size() < limit; pos -= RECORD) {
+                in.seek(pos);
+                in.readFully(record);
+                ByteBuffer buf = ByteBuffer.wrap(record);
+                String old = fromBytes(buf);
+                String now = fromBytes(buf);
+                long time = buf.getLong();
+                int len = buf.get() & 0xff;
+                String command = new String(record, buf.position(), len,
+                        StandardCharsets.UTF_8);
+                result.add(new Entry(old, now, time, command));
+            }
+        } catch (IOException e) {
+            throw new GitletException("Could not read the reflog.");
+        }
+    }
+
+    /** Return the 20 bytes denoted by the hexadecimal SHA1 CODE.
+     * @param code the SHA1 code
+     * @return its bytes */
+    static byte[] toBytes(String code) {
+        byte[] result = new byte[CODE_BYTES];
+        for (int i = 0; i < CODE_BYTES; i++) {
+            result[i] = (byte) Integer.parseInt(
+                    code.substring(2 * i, 2 * i + 2), 16);
+        }
+        return result;
+    }
+
+    /** Read a binary SHA1 code from BUF.
+     * @param buf the record
+     * @return the code in hexadecimal */
+    static String fromBytes(ByteBuffer buf) {
+        StringBuilder code = new StringBuilder(2 * CODE_BYTES);
+        for (int i = 0; i < CODE_BYTES; i++) {
+            code.append(String.format("%02x", buf.get() & 0xff));
+        }
+        return code.toString();
+    }
+}
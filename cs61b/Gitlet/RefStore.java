@@ -0,0 +1,198 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static gitlet.Utils.*;
+
+/** Named references kept in a single packed file, one "SHA1 NAME" line per
+ *  reference, sorted by name. Lookups memory-map the file and binary-search
+ *  it, so they cost O(log n) no matter how many references exist. Updates
+ *  take a lock file, check the reference still has the value the caller
+ *  expects, and atomically rename the rewritten file into place.
+ * @author taoxinyyyun
+ */
+class RefStore {
+
+    /** Length of a SHA1 code. */
+    private static final int CODE_LENGTH = 40;
+
+    /** The packed references file. */
+    private File packed;
+
+    /** The lock file guarding updates to the packed file. */
+    private File lock;
+
+    /** A store of the references packed in DIR.
+     * @param dir the directory holding the packed-refs file */
+    RefStore(File dir) {
+        packed = join(dir, "packed-refs");
+        lock = join(dir, "packed-refs.lock");
+    }
+
+    /** Get the value of a reference.
+     * @param name the reference's name
+     * @return its SHA1 code, or null if there is no such reference
+     */
+    String get(String name) throws GitletException {
+        if (!packed.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(packed.toPath(),
+                StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+            byte[] key = name.getBytes(StandardCharsets.UTF_8);
+            int lo = 0;
+            int hi = buf.limit();
+            while (lo < hi) {
+                int start = lineStart(buf, lo + (hi - lo) / 2);
+                int end = lineEnd(buf, start);
+                int cmp = compare(buf, start + CODE_LENGTH + 1, end, key);
+                if (cmp == 0) {
+                    byte[] code = new byte[CODE_LENGTH];
+                    buf.position(start);
+                    buf.get(code);
+                    return new String(code, StandardCharsets.US_ASCII);
+                } else if (cmp < 0) {
+                    lo = end + 1;
+                } else {
+                    hi = start;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new GitletException("Could not read references.");
+        }
+    }
+
+    /** Get every reference whose name starts with PREFIX.
+     * @param prefix the prefix
+     * @return the references, sorted by name
+     */
+    TreeMap<String, String> all(String prefix) throws GitletException {
+        TreeMap<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, String> ref : readAll().entrySet()) {
+            if (ref.getKey().startsWith(prefix)) {
+                result.put(ref.getKey(), ref.getValue());
+            }
+        }
+        return result;
+    }
+
+    /** Atomically set the reference NAME to VALUE, provided that it is
+     *  still EXPECTED.
+     * @param name the reference's name
+     * @param expected its expected current value, null if it should not
+     *                 exist yet
+     * @param value its new value, null to delete it
+     */
+    void update(String name, String expected, String value)
+        throws GitletException {
+        try {
+            Files.createFile(lock.toPath());
+        } catch (FileAlreadyExistsException e) {
+            throw new GitletException("Unable to lock references; another "
+                    + "Gitlet process is updating them.");
+        } catch (IOException e) {
+            throw new GitletException("Could not lock references.");
+        }
+        try {
+            TreeMap<String, String> refs = readAll();
+            String current = refs.get(name);
+            if (current == null ? expected != null
+                    : !current.equals(expected)) {
+                throw new GitletException("Reference " + name
+                        + " was changed by another process.");
+            }
+            if (value == null) {
+                refs.remove(name);
+            } else {
+                refs.put(name, value);
+            }
+            StringBuilder out = new StringBuilder();
+            for (Map.Entry<String, String> ref : refs.entrySet()) {
+                out.append(ref.getValue()).append(' ').append(ref.getKey())
+                    .append('\n');
+            }
+            writeContents(lock, out.toString());
+            Files.move(lock.toPath(), packed.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new GitletException("Could not update references.");
+        } finally {
+            lock.delete();
+        }
+    }
+
+    /** Read the whole packed file.
+     * @return all references, sorted by name
+     */
+    private TreeMap<String, String> readAll() {
+        TreeMap<String, String> refs = new TreeMap<>();
+        if (packed.exists()) {
+            for (String line : readContentsAsString(packed).split("\n")) {
+                if (line.length() > CODE_LENGTH) {
+                    refs.put(line.substring(CODE_LENGTH + 1),
+                            line.substring(0, CODE_LENGTH));
+                }
+            }
+        }
+        return refs;
+    }
+
+    /** Return the start of the line containing position POS of BUF.
+     * @param buf the packed file
+     * @param pos a position in it
+     * @return the line's first position
+     */
+    private static int lineStart(MappedByteBuffer buf, int pos) {
+        while (pos > 0 && buf.get(pos - 1) != '\n') {
+            pos -= 1;
+        }
+        return pos;
+    }
+
+    /** Return the position of the newline ending the line at START.
+     * @param buf the packed file
+     * @param start the line's first position
+     * @return the line's end
+     */
+    private static int lineEnd(MappedByteBuffer buf, int start) {
+        int pos = start;
+        while (pos < buf.limit() && buf.get(pos) != '\n') {
+            pos += 1;
+        }
+        return pos;
+    }
+
+    /** Compare the name in BUF[FROM..TO) with KEY, bytewise.
+     * @param buf the packed file
+     * @param from start of the name
+     * @param to end of the name
+     * @param key the name looked for
+     * @return negative, zero or positive as the name is less than, equal
+     *         to, or greater than KEY
+     */
+    private static int compare(MappedByteBuffer buf, int from, int to,
+                               byte[] key) {
+        int n = Math.min(to - from, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (buf.get(from + i) & 0xff) - (key[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return (to - from) - key.length;
+    }
+}
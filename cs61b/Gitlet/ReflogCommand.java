@@ -0,0 +1,43 @@
+package gitlet;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/** Displays the past values of a branch head, most recent first. Any of
+ *  them can be restored with reset BRANCH@{N}.
+ * @author taoxinyyyun
+ */
+public class ReflogCommand extends Command {
+
+    /** the constructor.
+     * @param repository the repository
+     * @param arg the arguments */
+    public ReflogCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** Prints the reflog of the given branch, or of the current branch if
+     *  none is given. */
+    public void run() throws GitletException {
+        if (args.length > 2) {
+            throw new GitletException("Incorrect operands.");
+        }
+        String branch = args.length == 2 ? args[1] : repo.getActiveBranch();
+        SimpleDateFormat format =
+                new SimpleDateFormat("E MMM d HH:mm:ss yyyy Z");
+        int n = 0;
+        for (RefLog.Entry entry
+                : repo.getRefLog().read(branch, Integer.MAX_VALUE)) {
+            getOut().println(entry.getNew().substring(0, 8) + " " + branch
+                    + "@{" + n + "}: " + entry.getCommand() + " ("
+                    + format.format(new Date(entry.getTime())) + ")");
+            n += 1;
+        }
+    }
+}
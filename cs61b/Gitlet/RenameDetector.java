@@ -0,0 +1,160 @@
+package gitlet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Detects files that were renamed between two snapshots. Deleted and
+ *  added files with identical contents are paired first; the rest are
+ *  paired by the fraction of content chunks they share, using an inverted
+ *  index from chunk fingerprints to deleted files so that only files with
+ *  something in common are ever compared.
+ * @author taoxinyyyun
+ */
+class RenameDetector {
+
+    /** Minimum similarity, in percent, for a rename to be detected. */
+    static final int THRESHOLD = 50;
+
+    /** Longest chunk, in bytes. Longer lines are split. */
+    private static final int CHUNK = 64;
+
+    /** Chunks shared by more deleted files than this are too common to
+     *  say anything about renames and are ignored. */
+    private static final int MAX_POSTINGS = 16;
+
+    /** Find the files renamed between PREV and CURR.
+     * @param prev the blobs of the earlier snapshot
+     * @param curr the blobs of the later snapshot
+     * @return a mapping from each new name to the old name it came from
+     */
+    static HashMap<String, String> detect(HashMap<String, Blob> prev,
+                                          HashMap<String, Blob> curr) {
+        TreeMap<String, Blob> deleted = new TreeMap<>();
+        for (Map.Entry<String, Blob> e : prev.entrySet()) {
+            if (!curr.containsKey(e.getKey())) {
+                deleted.put(e.getKey(), e.getValue());
+            }
+        }
+        TreeMap<String, Blob> added = new TreeMap<>();
+        for (Map.Entry<String, Blob> e : curr.entrySet()) {
+            if (!prev.containsKey(e.getKey())) {
+                added.put(e.getKey(), e.getValue());
+            }
+        }
+        HashMap<String, String> renames = new HashMap<>();
+        if (deleted.isEmpty() || added.isEmpty()) {
+            return renames;
+        }
+
+        HashMap<String, ArrayDeque<String>> byHash = new HashMap<>();
+        for (Map.Entry<String, Blob> e : deleted.entrySet()) {
+            byHash.computeIfAbsent(e.getValue().getSha1hash(),
+                k -> new ArrayDeque<>()).add(e.getKey());
+        }
+        for (Map.Entry<String, Blob> e : added.entrySet()) {
+            ArrayDeque<String> same = byHash.get(e.getValue().getSha1hash());
+            if (same != null && !same.isEmpty()) {
+                String old = same.poll();
+                renames.put(e.getKey(), old);
+                deleted.remove(old);
+            }
+        }
+        for (String name : renames.keySet()) {
+            added.remove(name);
+        }
+        if (!deleted.isEmpty() && !added.isEmpty()) {
+            pairSimilar(deleted, added, renames);
+        }
+        return renames;
+    }
+
+    /** Pair each of ADDED with the most similar of DELETED at or above
+     *  THRESHOLD, most similar pairs first, recording them in RENAMES.
+     * @param deleted the unpaired deleted files
+     * @param added the unpaired added files
+     * @param renames the renames found so far
+     */
+    private static void pairSimilar(TreeMap<String, Blob> deleted,
+                                    TreeMap<String, Blob> added,
+                                    HashMap<String, String> renames) {
+        ArrayList<String> oldNames = new ArrayList<>(deleted.keySet());
+        int[] oldSizes = new int[oldNames.size()];
+        HashMap<Integer, ArrayList<Integer>> postings = new HashMap<>();
+        for (int i = 0; i < oldNames.size(); i++) {
+            HashSet<Integer> prints =
+                fingerprints(deleted.get(oldNames.get(i)).getContents());
+            oldSizes[i] = prints.size();
+            for (int print : prints) {
+                postings.computeIfAbsent(print,
+                    k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        ArrayList<long[]> pairs = new ArrayList<>();
+        ArrayList<String> newNames = new ArrayList<>(added.keySet());
+        for (int j = 0; j < newNames.size(); j++) {
+            HashSet<Integer> prints =
+                fingerprints(added.get(newNames.get(j)).getContents());
+            HashMap<Integer, Integer> shared = new HashMap<>();
+            for (int print : prints) {
+                ArrayList<Integer> owners = postings.get(print);
+                if (owners != null && owners.size() <= MAX_POSTINGS) {
+                    for (int i : owners) {
+                        shared.merge(i, 1, Integer::sum);
+                    }
+                }
+            }
+            for (Map.Entry<Integer, Integer> e : shared.entrySet()) {
+                int i = e.getKey();
+                long score = 200L * e.getValue()
+                    / (oldSizes[i] + prints.size());
+                if (score >= THRESHOLD) {
+                    pairs.add(new long[] {score, i, j});
+                }
+            }
+        }
+
+        pairs.sort((x, y) -> x[0] != y[0] ? Long.compare(y[0], x[0])
+            : x[1] != y[1] ? Long.compare(x[1], y[1])
+            : Long.compare(x[2], y[2]));
+        boolean[] oldUsed = new boolean[oldNames.size()];
+        boolean[] newUsed = new boolean[newNames.size()];
+        for (long[] pair : pairs) {
+            int i = (int) pair[1];
+            int j = (int) pair[2];
+            if (!oldUsed[i] && !newUsed[j]) {
+                oldUsed[i] = true;
+                newUsed[j] = true;
+                renames.put(newNames.get(j), oldNames.get(i));
+            }
+        }
+    }
+
+    /** Return the fingerprints of the chunks of CONTENTS. Chunks end at
+     *  each newline or after CHUNK bytes, whichever comes first.
+     * @param contents the contents of a file
+     * @return the distinct chunk fingerprints
+     */
+    private static HashSet<Integer> fingerprints(byte[] contents) {
+        HashSet<Integer> prints = new HashSet<>();
+        int hash = 0;
+        int len = 0;
+        for (byte b : contents) {
+            hash = hash * 31 + b;
+            len += 1;
+            if (b == '\n' || len == CHUNK) {
+                prints.add(hash);
+                hash = 0;
+                len = 0;
+            }
+        }
+        if (len > 0) {
+            prints.add(hash);
+        }
+        return prints;
+    }
+}
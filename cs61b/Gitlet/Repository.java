@@ -1,9 +1,15 @@
 package gitlet;
 
 import java.io.File;
+import java.io.PrintStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static gitlet.Utils.*;
 
@@ -17,47 +23,188 @@ public class Repository implements Serializable {
     /** Length of commit. */
     private static final int COMMITLENGTH = 40;
 
+    /** An entry of a branch's reflog, such as master@{2}. */
+    private static final Pattern REFLOG_ENTRY =
+            Pattern.compile("(.+)@\\{(\\d+)\\}");
+
     /** Maps a branch name to its head commit's SHA1 code. */
     private HashMap<String, String> branches;
 
     /** Points to the current active branch. */
     private String activeBranch;
 
-    /** The dir that stores all staging files. */
-    private File staging;
-
-    /** The current working directory. */
-    private File workingDirectory = new File(System.getProperty("user.dir"));
-
-    /** The gitlet directory. */
-    private File repo = new File(".gitlet/");
-
     /** A mapping that maps files staged for removal to their names. */
     private HashMap<String, File> removeFiles;
 
     /** A set that stores all the commits made. */
     private HashSet<String> commits;
 
-    /** Create a new gitlet repository. Set the staging area.
+    /** Stashed changes, as SHA1 codes of commits, most recent last. */
+    private ArrayList<String> stashes;
+
+    /** The working directories of the worktrees added to this repository,
+     *  as absolute paths, mapped to the branch checked out in each. */
+    private HashMap<String, String> worktrees;
+
+    /** The gitlet directory this repository was opened from. */
+    private transient File gitletDir;
+
+    /** The directory holding the commit objects and the shared repository
+     *  state. The same as gitletDir unless opened from a worktree. */
+    private transient File objects;
+
+    /** The state of the worktree this repository was opened from, or null
+     *  if it was opened from its main working directory. */
+    private transient Worktree worktree;
+
+    /** Commits already read in this run, by SHA1 code. */
+    private transient HashMap<String, Commit> loaded;
+
+    /** The compiled sparse-checkout patterns, or null if there are none
+     *  or they have not been read yet. */
+    private transient IgnoreRules sparse;
+
+    /** True once the sparse-checkout patterns have been read, so that a
+     *  missing sparse-checkout file is looked for only once. */
+    private transient boolean sparseRead;
+
+    /** The chunk store, once opened. */
+    private transient ChunkStore chunks;
+
+    /** The commit graph, once opened. */
+    private transient CommitGraph graph;
+
+    /** Where commands print their output. */
+    private transient PrintStream out = System.out;
+
+    /** Create a new gitlet repository in the gitlet directory DIR. Set the
+     *  staging area.
+     * @param dir the gitlet directory
      * @param initial the initial commit */
-    public Repository(Commit initial) {
-        repo.mkdir();
+    public Repository(File dir, Commit initial) {
+        dir.mkdir();
 
         branches = new HashMap<>();
         String initialHash = initial.getSHA1();
-        branches.put("master", initialHash);
         activeBranch = "master";
 
-        staging = new File(".gitlet/staging");
-        staging.mkdir();
+        join(dir, "staging").mkdir();
 
         commits = new HashSet<String>();
         commits.add(initialHash);
 
         removeFiles = new HashMap<String, File>();
+        stashes = new ArrayList<String>();
 
-        File f = new File(".gitlet/" + initialHash);
-        writeObject(f, initial);
+        gitletDir = dir;
+        objects = dir;
+        writeObjectFile(initialHash, initial);
+        setBranch("master", initialHash, "commit (initial): initial commit");
+    }
+
+    /** Open the repository whose gitlet directory is DIR. If DIR belongs to
+     *  a worktree, the shared repository is opened and the worktree's own
+     *  branch and staged removals are used in place of the main ones.
+     * @param dir the gitlet directory
+     * @return the repository */
+    public static Repository open(File dir) {
+        File common = join(dir, "commondir");
+        File shared = dir;
+        if (common.exists()) {
+            shared = new File(readContentsAsString(common).trim());
+        }
+        long start = Stats.start();
+        File file = join(shared, "repository");
+        Repository r = readObject(file, Repository.class);
+        Stats.readObject(file.length());
+        Stats.stop(Stats.DESERIALIZE, start);
+        r.gitletDir = dir;
+        r.out = System.out;
+        r.objects = shared;
+        if (common.exists()) {
+            r.worktree = readObject(join(dir, "worktree"), Worktree.class);
+        }
+        return r;
+    }
+
+    /** Write this repository, and the state of the worktree it was opened
+     *  from if any, back to disk. */
+    public void save() {
+        long start = Stats.start();
+        File file = join(objects, "repository");
+        writeObject(file, this);
+        Stats.written(file.length());
+        if (worktree != null) {
+            writeObject(join(gitletDir, "worktree"), worktree);
+        }
+        Stats.stop(Stats.SAVE, start);
+    }
+
+    /** Write the object OBJ under its SHA1 code CODE.
+     * @param code the object's SHA1 code
+     * @param obj the commit or tag */
+    public void writeObjectFile(String code, Serializable obj) {
+        long start = Stats.start();
+        File file = objectFile(code);
+        writeObject(file, obj);
+        Stats.written(file.length());
+        Stats.stop(Stats.WRITE_OBJECTS, start);
+        if (obj instanceof Commit) {
+            Commit c = (Commit) obj;
+            HashMap<String, Blob> parent = c.getParentSHA1() == null ? null
+                    : loadCommit(c.getParentSHA1()).getTrackedBlobs();
+            getCommitGraph().add(c, CommitGraph.changedPaths(parent,
+                    c.getTrackedBlobs()));
+            if (loaded != null) {
+                loaded.put(code, c);
+            }
+        }
+    }
+
+    /** Reuse the commits OTHER has already read, as when this repository
+     *  is a fresh copy of it.
+     * @param other an earlier copy of this repository */
+    void keepCommits(Repository other) {
+        loaded = other.loaded;
+    }
+
+    /** Drop the commits read so far; they are read again when needed. */
+    void forgetCommits() {
+        loaded = null;
+    }
+
+    /** Read the commit with the full SHA1 code CODE, once per run.
+     * @param code the commit's SHA1 code
+     * @return the commit */
+    private Commit loadCommit(String code) {
+        if (loaded == null) {
+            loaded = new HashMap<>();
+        }
+        Commit c = loaded.get(code);
+        Stats.cache(c != null);
+        if (c == null) {
+            long start = Stats.start();
+            File file = objectFile(code);
+            c = readObject(file, Commit.class);
+            Stats.readObject(file.length());
+            attachChunks(c);
+            Stats.stop(Stats.LOAD_COMMITS, start);
+            loaded.put(code, c);
+        }
+        return c;
+    }
+
+    /** Get the directory holding the commit objects.
+     * @return the object directory */
+    public File getObjectsDirectory() {
+        return objects;
+    }
+
+    /** Get the file storing the object with SHA1 code CODE.
+     * @param code the SHA1 code
+     * @return the object's file */
+    public File objectFile(String code) {
+        return join(objects, code);
     }
 
     /** A mapping of branch names to the SHA1 of the head commit.
@@ -69,13 +216,78 @@ public class Repository implements Serializable {
     /** Get the current branch.
      * @return the active branch */
     public String getActiveBranch() {
+        if (worktree != null) {
+            return worktree.getActiveBranch();
+        }
         return activeBranch;
     }
 
     /** Set the current branch.
      * @param branchname name of branch */
     public void setActiveBranch(String branchname) {
-        activeBranch = branchname;
+        if (worktree != null) {
+            worktree.setActiveBranch(branchname);
+            addWorktree(worktree.getWorkingDirectory(), branchname);
+        } else {
+            activeBranch = branchname;
+        }
+    }
+
+    /** Record that the worktree in DIR has BRANCH checked out.
+     * @param dir the worktree's working directory
+     * @param branch name of branch */
+    public void addWorktree(File dir, String branch) {
+        if (worktrees == null) {
+            worktrees = new HashMap<>();
+        }
+        worktrees.put(dir.getAbsolutePath(), branch);
+    }
+
+    /** Return true iff BRANCH is checked out in a working directory other
+     *  than the one this repository was opened from. Worktrees whose
+     *  directories have been deleted are forgotten.
+     * @param branch name of branch
+     * @return true/false */
+    public boolean checkedOutElsewhere(String branch) {
+        if (worktree != null && branch.equals(activeBranch)) {
+            return true;
+        }
+        if (worktrees == null) {
+            return false;
+        }
+        worktrees.keySet().removeIf(
+            dir -> !join(new File(dir), ".gitlet").isDirectory());
+        String here = getWorkingDirectory().getAbsolutePath();
+        for (Map.Entry<String, String> entry : worktrees.entrySet()) {
+            if (entry.getValue().equals(branch)
+                    && !entry.getKey().equals(here)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Point a branch at a commit, recording the change in the branch's
+     *  reflog. Creates the branch if it does not exist.
+     * @param name name of branch
+     * @param code the SHA1 code of its new head commit
+     * @param command a description of the command moving it */
+    public void setBranch(String name, String code, String command) {
+        String old = branches.put(name, code);
+        getRefLog().append(name, old, code, command);
+    }
+
+    /** Delete a branch, recording the deletion in its reflog.
+     * @param name name of branch */
+    public void removeBranch(String name) {
+        String old = branches.remove(name);
+        getRefLog().append(name, old, null, "branch: deleted");
+    }
+
+    /** Get the logs of the values of each branch head.
+     * @return the reflog */
+    public RefLog getRefLog() {
+        return new RefLog(join(objects, "logs"));
     }
 
     /** Get a specific branch.
@@ -88,31 +300,179 @@ public class Repository implements Serializable {
         return branches.get(name);
     }
 
-    /** Get a specific commit.
+    /** Get a specific commit, given by its SHA1 code, an abbreviation of
+     *  it, a reflog entry such as master@{1}, or a tag name. A name of the
+     *  form refs/tags/NAME always means that tag.
      * @param commitHash the SHA1 code
      * @return the commit */
     public Commit getCommit(String commitHash) throws GitletException {
+        if (commitHash.startsWith(Tag.PREFIX)) {
+            String tagged = getRefs().get(commitHash);
+            if (tagged == null) {
+                throw new GitletException("No commit with that id exists.");
+            }
+            return loadCommit(peel(tagged));
+        }
         if (commitHash.length() < COMMITLENGTH) {
             for (String commit : commits) {
                 if (commitHash.equals(commit.substring(0, 8))) {
-                    File c = new File(".gitlet/" + commit);
-                    return readObject(c, Commit.class);
+                    return loadCommit(commit);
                 }
             }
         }
-        File f = new File(".gitlet/" + commitHash);
-        if (!f.exists()) {
+        Matcher logged = REFLOG_ENTRY.matcher(commitHash);
+        if (logged.matches()) {
+            int n = Integer.parseInt(logged.group(2));
+            List<RefLog.Entry> entries = getRefLog().read(logged.group(1),
+                    n + 1);
+            if (entries.size() <= n
+                    || entries.get(n).getNew().equals(RefLog.NONE)) {
+                throw new GitletException("No commit with that id exists.");
+            }
+            commitHash = entries.get(n).getNew();
+        }
+        if (!objectFile(commitHash).exists()) {
+            String tagged = getRefs().get(Tag.PREFIX + commitHash);
+            if (tagged == null) {
+                throw new GitletException("No commit with that id exists.");
+            }
+            commitHash = tagged;
+        }
+        if (!commits.contains(commitHash)) {
+            commitHash = peel(commitHash);
+        }
+        return loadCommit(commitHash);
+    }
+
+    /** Get the commit an object refers to: the object itself if it is a
+     *  commit, or the tagged commit if it is an annotated tag.
+     * @param code the object's SHA1 code
+     * @return the commit's SHA1 code
+     * @throws GitletException if there is no commit or tag with that code
+     */
+    public String peel(String code) throws GitletException {
+        if (loaded != null && loaded.containsKey(code)) {
+            return code;
+        }
+        File file = objectFile(code);
+        Serializable obj;
+        try {
+            obj = readObject(file, Serializable.class);
+        } catch (IllegalArgumentException excp) {
+            throw new GitletException("No commit with that id exists.");
+        }
+        Stats.readObject(file.length());
+        if (obj instanceof Tag) {
+            return ((Tag) obj).getTarget();
+        } else if (!(obj instanceof Commit)) {
             throw new GitletException("No commit with that id exists.");
         }
-        return readObject(f, Commit.class);
+        return code;
+    }
+
+    /** Get the commits referenced directly by the repository. Every
+     *  commit that should survive garbage collection is reachable from
+     *  one of them.
+     * @return the SHA1 codes of the roots, including those kept alive by
+     *         reflogs */
+    public HashSet<String> getRoots() {
+        HashSet<String> roots = new HashSet<String>(branches.values());
+        roots.addAll(getStashes());
+        roots.addAll(getRefs().all("refs/").values());
+        RefLog log = getRefLog();
+        for (String branch : log.branches()) {
+            for (RefLog.Entry entry : log.read(branch, Integer.MAX_VALUE)) {
+                if (!entry.getNew().equals(RefLog.NONE)) {
+                    roots.add(entry.getNew());
+                }
+            }
+        }
+        return roots;
+    }
+
+    /** Return true iff commit C changed FILE relative to its first parent.
+     * @param c a commit
+     * @param file the file's name
+     * @return true/false
+     */
+    public boolean changedFile(Commit c, String file) {
+        Commit parent = getParent(c);
+        Blob now = c.getTrackedBlobs().get(file);
+        Blob before = parent == null ? null
+                : parent.getTrackedBlobs().get(file);
+        if (now == null || before == null) {
+            return now != before;
+        }
+        return !now.getSha1hash().equals(before.getSha1hash());
+    }
+
+    /** Get the store of the chunks of large files.
+     * @return the chunk store */
+    public ChunkStore getChunkStore() {
+        if (chunks == null) {
+            chunks = new ChunkStore(join(objects, "chunks"));
+        }
+        return chunks;
+    }
+
+    /** Let the blobs of C read their chunks from this repository.
+     * @param c a commit read from disk */
+    public void attachChunks(Commit c) {
+        for (Blob b : c.getTrackedBlobs().values()) {
+            b.attach(getChunkStore());
+        }
+    }
+
+    /** Get the commit graph, which holds the parents and changed paths of
+     *  each commit.
+     * @return the commit graph */
+    public CommitGraph getCommitGraph() {
+        if (graph == null) {
+            graph = new CommitGraph(objects);
+        }
+        return graph;
+    }
+
+    /** Get the packed references of this repository, such as tags.
+     * @return the references */
+    public RefStore getRefs() {
+        return new RefStore(objects);
+    }
+
+    /** Get the stashed changes, most recent last.
+     * @return the SHA1 codes of the stash commits */
+    public ArrayList<String> getStashes() {
+        if (stashes == null) {
+            stashes = new ArrayList<String>();
+        }
+        return stashes;
     }
 
     /** Get the current head commit.
      * @return the head commit */
     public Commit getHeadCommit() {
-        String headCode = branches.get(activeBranch);
-        File f = new File(".gitlet/" + headCode);
-        return readObject(f, Commit.class);
+        String headCode = branches.get(getActiveBranch());
+        return loadCommit(headCode);
+    }
+
+    /** Get the first parent of a commit.
+     * @param c the commit
+     * @return the parent, or null for the initial commit */
+    public Commit getParent(Commit c) {
+        if (c.getParentSHA1() == null) {
+            return null;
+        }
+        return loadCommit(c.getParentSHA1());
+    }
+
+    /** Get the second parent of a commit.
+     * @param c the commit
+     * @return the second parent, or null if it is not a merge */
+    public Commit getSecParent(Commit c) {
+        if (c.getParent2SHA1() == null) {
+            return null;
+        }
+        return loadCommit(c.getParent2SHA1());
     }
 
     /** Get all commits currently stored in the repo.
@@ -124,33 +484,125 @@ public class Repository implements Serializable {
     /** Get the staging area.
      * @return the staging directory */
     public File getStaging() {
-        return staging;
+        return join(gitletDir, "staging");
     }
 
     /** Get all staged files.
      * @return a file list */
     public File[] getStagedFiles() {
-        return staging.listFiles();
+        return getStaging().listFiles();
     }
 
     /** get all files staged for removal.
      * @return all files staged for removal */
     public HashMap<String, File> getRemoveFiles() {
+        if (worktree != null) {
+            return worktree.getRemoveFiles();
+        }
         return removeFiles;
     }
 
     /** Delete a file from the cwd.
      * @param fileName name of file */
     public void delFile(String fileName) {
-        File f = join(workingDirectory, fileName);
+        File dir = getWorkingDirectory();
+        File f = join(dir, fileName);
         if (f.exists()) {
             f.delete();
         }
     }
 
+    /** Return the ignore rules of the working directory.
+     * @return the compiled .gitletignore patterns */
+    public IgnoreRules getIgnoreRules() {
+        return new IgnoreRules(getWorkingDirectory());
+    }
+
+    /** Return the sparse-checkout patterns of this working directory.
+     * @return the patterns, or null if every path is checked out */
+    public List<String> getSparsePatterns() {
+        File f = join(gitletDir, "sparse-checkout");
+        if (!f.exists()) {
+            return null;
+        }
+        ArrayList<String> patterns = new ArrayList<>();
+        for (String line : readContentsAsString(f).split("\n")) {
+            if (!line.trim().isEmpty()) {
+                patterns.add(line.trim());
+            }
+        }
+        return patterns;
+    }
+
+    /** Limit the working directory to the paths selected by PATTERNS, or
+     *  check out every path again if PATTERNS is null. Files are not
+     *  written or removed here.
+     * @param patterns the patterns, or null */
+    public void setSparsePatterns(List<String> patterns) {
+        File f = join(gitletDir, "sparse-checkout");
+        if (patterns == null) {
+            f.delete();
+        } else {
+            writeContents(f, String.join("\n", patterns) + "\n");
+        }
+        sparse = null;
+        sparseRead = false;
+    }
+
+    /** Return true iff the tracked file NAME belongs in the working
+     *  directory, that is, there is no sparse checkout or its patterns
+     *  select NAME.
+     * @param name the file's name
+     * @return true/false */
+    public boolean inSparseCheckout(String name) {
+        if (!sparseRead) {
+            List<String> patterns = getSparsePatterns();
+            sparse = patterns == null ? null : new IgnoreRules(patterns);
+            sparseRead = true;
+        }
+        return sparse == null || sparse.matches(name, false);
+    }
+
+    /** Point this repository at the gitlet directory DIR and drop any
+     *  files staged for removal, as when its state is copied to a new
+     *  location.
+     * @param dir the new gitlet directory */
+    public void relocate(File dir) {
+        gitletDir = dir;
+        objects = dir;
+        worktree = null;
+        worktrees = null;
+        chunks = null;
+        sparse = null;
+        sparseRead = false;
+        removeFiles.clear();
+    }
+
+    /** Get the working directory: the directory holding the gitlet
+     *  directory, or the worktree's directory if opened from one.
+     * @return the working directory */
+    public File getWorkingDirectory() {
+        if (worktree != null) {
+            return worktree.getWorkingDirectory();
+        }
+        return gitletDir.getAbsoluteFile().getParentFile();
+    }
+
+    /** Get the stream commands print their output to.
+     * @return the output stream */
+    public PrintStream getOut() {
+        return out;
+    }
+
+    /** Make commands print their output to OUTPUT.
+     * @param output the output stream */
+    public void setOut(PrintStream output) {
+        out = output;
+    }
+
     /** Clear the staging area. */
     public void clearStage() {
-        File[] stagingFiles = staging.listFiles();
+        File[] stagingFiles = getStagedFiles();
         if (stagingFiles != null) {
             for (File staged : stagingFiles) {
                 staged.delete();
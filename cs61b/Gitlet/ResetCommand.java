@@ -1,7 +1,5 @@
 package gitlet;
 
-import java.io.File;
-
 /** A command that extends the checkout command.
  * @author taoxinyyyun
  */
@@ -25,13 +23,9 @@ public class ResetCommand extends CheckOutCommand {
      * Also moves the current branch's head to that commit node. */
     @Override
     public void run() throws GitletException {
-        String code = args[1];
-        File f = new File(".gitlet/" + code);
-        if (!f.exists()) {
-            throw new GitletException("No commit with that id exists.");
-        }
+        String code = repo.getCommit(args[1]).getSHA1();
         checkoutCommit(code);
         String activeBranch = repo.getActiveBranch();
-        repo.getBranches().put(activeBranch, code);
+        repo.setBranch(activeBranch, code, "reset: moving to " + args[1]);
     }
 }
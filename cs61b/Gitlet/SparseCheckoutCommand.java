@@ -0,0 +1,90 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static gitlet.Utils.*;
+
+/** A command that limits the working directory to the paths matching a
+ *  set of patterns, in the syntax of .gitletignore:
+ *  sparse-checkout set PATTERN..., sparse-checkout list and
+ *  sparse-checkout disable. Files outside the patterns stay tracked and
+ *  are carried from commit to commit, but checkout, reset and merge no
+ *  longer write them.
+ * @author taoxinyyyun
+ */
+public class SparseCheckoutCommand extends CheckOutCommand {
+
+    /** the constructor.
+     * @param repository the repository
+     * @param arg the arguments */
+    public SparseCheckoutCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** The working directory. */
+    private File workingDirectory = repo.getWorkingDirectory();
+
+    /** Sets, lists or removes the patterns. */
+    @Override
+    public void run() throws GitletException {
+        String action = args.length > 1 ? args[1] : "";
+        if (action.equals("set") && args.length > 2) {
+            repo.setSparsePatterns(Arrays.asList(args)
+                    .subList(2, args.length));
+            apply();
+        } else if (action.equals("list") && args.length == 2) {
+            List<String> patterns = repo.getSparsePatterns();
+            if (patterns != null) {
+                for (String pattern : patterns) {
+                    getOut().println(pattern);
+                }
+            }
+        } else if (action.equals("disable") && args.length == 2) {
+            repo.setSparsePatterns(null);
+            apply();
+        } else {
+            throw new GitletException("Incorrect operands.");
+        }
+    }
+
+    /** Bring the working directory in line with the patterns: write the
+     *  selected files of the head commit that are missing, and remove the
+     *  others unless they are staged or have local changes. */
+    private void apply() {
+        HashMap<String, Blob> headFiles = repo.getHeadCommit()
+                .getTrackedBlobs();
+        ArrayList<String> kept = new ArrayList<>();
+        for (Map.Entry<String, Blob> file : headFiles.entrySet()) {
+            String name = file.getKey();
+            File workFile = join(workingDirectory, name);
+            if (repo.inSparseCheckout(name)) {
+                if (!workFile.exists()
+                        && !repo.getRemoveFiles().containsKey(name)) {
+                    restoreFile(file.getValue(), name);
+                }
+            } else if (workFile.exists()) {
+                if (join(repo.getStaging(), name).exists()
+                        || !file.getValue().matches(workFile)) {
+                    kept.add(name);
+                } else {
+                    restoreFile(null, name);
+                }
+            }
+        }
+        for (String name : kept) {
+            getOut().println("Kept modified file outside the sparse "
+                    + "checkout: " + name);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package gitlet;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static gitlet.Utils.*;
+
+/** A command that sets uncommitted changes aside as a commit and brings
+ *  them back later: stash push, stash pop and stash list.
+ * @author taoxinyyyun
+ */
+public class StashCommand extends CheckOutCommand {
+
+    /** the constructor.
+     * @param repository the repository
+     * @param arg the arguments */
+    public StashCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** The working directory. */
+    private File workingDirectory = repo.getWorkingDirectory();
+
+    /** execute the command.
+     * @throws GitletException
+     */
+    @Override
+    public void run() throws GitletException {
+        String action = args.length == 1 ? "push" : args[1];
+        if (args.length > 2) {
+            throw new GitletException("Incorrect operands.");
+        }
+        if (action.equals("push")) {
+            push();
+        } else if (action.equals("pop")) {
+            pop();
+        } else if (action.equals("list")) {
+            list();
+        } else {
+            throw new GitletException("Incorrect operands.");
+        }
+    }
+
+    /** Record the staged files, the files staged for removal and the
+     *  modified tracked files as a commit on top of the head commit, then
+     *  return the working directory to the head commit. The staging area
+     *  is recorded as well, as a second parent of that commit. */
+    private void push() throws GitletException {
+        Commit head = repo.getHeadCommit();
+        HashMap<String, Blob> headFiles = head.getTrackedBlobs();
+        String subject = repo.getActiveBranch() + ": "
+                + head.getSHA1().substring(0, 7) + " " + head.getMessage();
+        HashMap<String, Blob> snapshot = new HashMap<>(headFiles);
+        HashMap<String, Blob> staged = new HashMap<>(headFiles);
+        HashMap<String, File> removed = repo.getRemoveFiles();
+
+        for (File f : repo.getStagedFiles()) {
+            String name = f.getName();
+            File workFile = join(workingDirectory, name);
+            Blob stagedBlob = new Blob(f, name, repo.getChunkStore());
+            staged.put(name, stagedBlob);
+            snapshot.put(name, workFile.exists() && !stagedBlob.matches(
+                    workFile) ? new Blob(workFile, name, repo.getChunkStore())
+                    : stagedBlob);
+        }
+        for (Map.Entry<String, Blob> file : headFiles.entrySet()) {
+            String name = file.getKey();
+            File workFile = join(workingDirectory, name);
+            if (removed.containsKey(name)) {
+                staged.remove(name);
+            }
+            if (!removed.containsKey(name) && !workFile.exists()
+                    && !repo.inSparseCheckout(name)) {
+                continue;
+            } else if (removed.containsKey(name) || !workFile.exists()) {
+                snapshot.remove(name);
+            } else if (!join(repo.getStaging(), name).exists()
+                    && !file.getValue().matches(workFile)) {
+                snapshot.put(name, new Blob(workFile, name,
+                        repo.getChunkStore()));
+            }
+        }
+        HashMap<String, Blob> changes = changes(headFiles, snapshot);
+        if (changes.isEmpty() && changes(headFiles, staged).isEmpty()) {
+            throw new GitletException("No local changes to save.");
+        }
+
+        String date = new SimpleDateFormat("E MMM d HH:mm:ss yyyy Z")
+                .format(new Date());
+        Commit index = new Commit("index on " + subject, date,
+                head.getSHA1(), null, staged);
+        repo.writeObjectFile(index.getSHA1(), index);
+        Commit stash = new Commit("WIP on " + subject, date, head.getSHA1(),
+                index.getSHA1(), snapshot);
+        repo.writeObjectFile(stash.getSHA1(), stash);
+        repo.getStashes().add(stash.getSHA1());
+
+        for (String name : changes.keySet()) {
+            restoreFile(headFiles.get(name), name);
+        }
+        repo.clearStage();
+        removed.clear();
+    }
+
+    /** Apply the most recent stash to the working directory, stage what
+     *  was staged when it was made, and drop it. Refuses to overwrite
+     *  files that differ from the head commit. */
+    private void pop() throws GitletException {
+        ArrayList<String> stashes = repo.getStashes();
+        if (stashes.isEmpty()) {
+            throw new GitletException("No stash entries found.");
+        }
+        HashMap<String, File> removed = repo.getRemoveFiles();
+        if (repo.getStagedFiles().length != 0 || !removed.isEmpty()) {
+            throw new GitletException("You have uncommitted changes.");
+        }
+        Commit stash = repo.getCommit(stashes.get(stashes.size() - 1));
+        if (stash.getParent2SHA1() == null) {
+            throw new GitletException("Stash entry has no index commit.");
+        }
+        Commit base = repo.getParent(stash);
+        Commit index = repo.getCommit(stash.getParent2SHA1());
+        HashMap<String, Blob> changes = changes(base.getTrackedBlobs(),
+                stash.getTrackedBlobs());
+        HashMap<String, Blob> stagedChanges = changes(
+                base.getTrackedBlobs(), index.getTrackedBlobs());
+        HashMap<String, Blob> headFiles = repo.getHeadCommit()
+                .getTrackedBlobs();
+
+        IgnoreRules ignore = repo.getIgnoreRules();
+        for (Map.Entry<String, Blob> change : changes.entrySet()) {
+            String name = change.getKey();
+            File workFile = join(workingDirectory, name);
+            Blob headBlob = headFiles.get(name);
+            if (headBlob != null && workFile.exists()
+                    && !headBlob.matches(workFile)) {
+                throw new GitletException("Your local changes to " + name
+                        + " would be overwritten; commit them first.");
+            }
+            if (change.getValue() != null && headBlob == null
+                    && repo.inSparseCheckout(name)
+                    && workFile.exists() && !ignore.matches(name, false)
+                    && !change.getValue().matches(workFile)) {
+                throw new GitletException("There is an untracked file in "
+                        + "the way; delete it, or add and commit it first.");
+            }
+        }
+
+        for (Map.Entry<String, Blob> change : changes.entrySet()) {
+            restoreFile(change.getValue(), change.getKey());
+        }
+        for (Map.Entry<String, Blob> change : stagedChanges.entrySet()) {
+            String name = change.getKey();
+            Blob b = change.getValue();
+            Blob headBlob = headFiles.get(name);
+            if (b != null && (headBlob == null
+                    || !headBlob.getSha1hash().equals(b.getSha1hash()))) {
+                b.writeTo(join(repo.getStaging(), name));
+            } else if (b == null && headBlob != null) {
+                removed.put(name, join(workingDirectory, name));
+            }
+        }
+        stashes.remove(stashes.size() - 1);
+    }
+
+    /** Print the stashes, most recent first. */
+    private void list() {
+        ArrayList<String> stashes = repo.getStashes();
+        for (int i = stashes.size() - 1; i >= 0; i--) {
+            Commit stash = repo.getCommit(stashes.get(i));
+            getOut().println("stash@{" + (stashes.size() - 1 - i) + "}: "
+                    + stash.getMessage());
+        }
+    }
+
+    /** Return the files that differ between two snapshots.
+     * @param prev blobs of the earlier snapshot
+     * @param curr blobs of the later snapshot
+     * @return the changed blobs of CURR, with null for deleted files
+     */
+    private HashMap<String, Blob> changes(HashMap<String, Blob> prev,
+                                          HashMap<String, Blob> curr) {
+        HashMap<String, Blob> result = new HashMap<>();
+        for (Map.Entry<String, Blob> file : curr.entrySet()) {
+            Blob old = prev.get(file.getKey());
+            if (old == null || !old.getSha1hash().equals(
+                    file.getValue().getSha1hash())) {
+                result.put(file.getKey(), file.getValue());
+            }
+        }
+        for (String name : prev.keySet()) {
+            if (!curr.containsKey(name)) {
+                result.put(name, null);
+            }
+        }
+        return result;
+    }
+}
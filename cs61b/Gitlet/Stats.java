@@ -0,0 +1,180 @@
+package gitlet;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Opt-in counters and phase timings for one run of gitlet, turned on by
+ *  setting GITLET_TRACE=1 or passing --stats before the command. When on,
+ *  a single line of JSON is written to standard error after the command
+ *  finishes, so the output of the command itself is unchanged. When off,
+ *  every method returns at once.
+ * @author taoxinyyyun
+ */
+final class Stats {
+
+    /** Phase in which the repository is deserialized. */
+    static final String DESERIALIZE = "deserializeRepository";
+    /** Phase in which commits are read from disk. */
+    static final String LOAD_COMMITS = "loadCommits";
+    /** Phase in which snapshots are compared or merged. */
+    static final String DIFF = "diff";
+    /** Phase in which files of the working directory are written. */
+    static final String WRITE_FILES = "writeWorkingFiles";
+    /** Phase in which objects are written. */
+    static final String WRITE_OBJECTS = "writeObjects";
+    /** Phase in which the repository is serialized. */
+    static final String SAVE = "saveRepository";
+
+    /** Nanoseconds in a microsecond. */
+    private static final long NANOS = 1000;
+
+    /** True iff statistics are being collected. */
+    private static boolean enabled;
+    /** When this run started, in nanoseconds. */
+    private static long started = System.nanoTime();
+    /** Nanoseconds spent in each phase, in the order first entered. */
+    private static final LinkedHashMap<String, Long> PHASES =
+            new LinkedHashMap<>();
+    /** Bytes read from disk. */
+    private static long bytesRead;
+    /** Bytes written to disk. */
+    private static long bytesWritten;
+    /** Objects deserialized. */
+    private static long readObjects;
+    /** Lookups answered by the commit cache. */
+    private static long cacheHits;
+    /** Lookups that had to read a commit from disk. */
+    private static long cacheMisses;
+
+    /** Not instantiable. */
+    private Stats() {
+    }
+
+    /** Turn collection on if ARGS starts with --stats or the environment
+     *  sets GITLET_TRACE to 1, and return ARGS without it. --stats is only
+     *  recognized before the command name, so it can still be passed to a
+     *  command as an operand.
+     * @param args the command line
+     * @return the command line for the command itself
+     */
+    static String[] init(String[] args) {
+        enabled = "1".equals(System.getenv("GITLET_TRACE"));
+        int skip = 0;
+        while (skip < args.length && args[skip].equals("--stats")) {
+            enabled = true;
+            skip += 1;
+        }
+        reset();
+        return Arrays.copyOfRange(args, skip, args.length);
+    }
+
+    /** Zero the counters and timings and restart the clock, so that each
+     *  command run in the same process is measured on its own. */
+    static void reset() {
+        PHASES.clear();
+        bytesRead = 0;
+        bytesWritten = 0;
+        readObjects = 0;
+        cacheHits = 0;
+        cacheMisses = 0;
+        started = System.nanoTime();
+    }
+
+    /** Return true iff statistics are being collected.
+     * @return true/false */
+    static boolean enabled() {
+        return enabled;
+    }
+
+    /** Return the time at which a phase starts.
+     * @return the current time in nanoseconds, or 0 if disabled */
+    static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /** Charge the time since START to PHASE.
+     * @param phase the phase
+     * @param start the value returned by start() */
+    static void stop(String phase, long start) {
+        if (enabled) {
+            PHASES.merge(phase, System.nanoTime() - start, Long::sum);
+        }
+    }
+
+    /** Record that N bytes were read.
+     * @param n the number of bytes */
+    static void read(long n) {
+        bytesRead += n;
+    }
+
+    /** Record that N bytes were written.
+     * @param n the number of bytes */
+    static void written(long n) {
+        bytesWritten += n;
+    }
+
+    /** Record that an object of N bytes was deserialized.
+     * @param n the size of its file */
+    static void readObject(long n) {
+        readObjects += 1;
+        bytesRead += n;
+    }
+
+    /** Record a lookup in the commit cache.
+     * @param hit whether the commit was cached */
+    static void cache(boolean hit) {
+        if (hit) {
+            cacheHits += 1;
+        } else {
+            cacheMisses += 1;
+        }
+    }
+
+    /** Write the statistics of COMMAND to standard error as JSON, if
+     *  collection is on.
+     * @param command the name of the command run */
+    static void report(String command) {
+        if (!enabled) {
+            return;
+        }
+        StringBuilder out = new StringBuilder("{\"command\":");
+        out.append(quote(command));
+        out.append(",\"wallMicros\":")
+            .append((System.nanoTime() - started) / NANOS);
+        out.append(",\"phaseMicros\":{");
+        String sep = "";
+        for (Map.Entry<String, Long> phase : PHASES.entrySet()) {
+            out.append(sep).append(quote(phase.getKey())).append(':')
+                .append(phase.getValue() / NANOS);
+            sep = ",";
+        }
+        out.append("},\"bytesRead\":").append(bytesRead);
+        out.append(",\"bytesWritten\":").append(bytesWritten);
+        out.append(",\"readObjectCalls\":").append(readObjects);
+        out.append(",\"cacheHits\":").append(cacheHits);
+        out.append(",\"cacheMisses\":").append(cacheMisses);
+        out.append('}');
+        System.err.println(out);
+    }
+
+    /** Return S as a JSON string.
+     * @param s a string, or null
+     * @return the quoted string */
+    private static String quote(String s) {
+        if (s == null) {
+            return "null";
+        }
+        StringBuilder out = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < ' ') {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+}
@@ -0,0 +1,132 @@
+package gitlet;
+
+import java.io.File;
+import java.util.Random;
+
+import static gitlet.Utils.*;
+
+/** Builds a synthetic Gitlet repository in the current directory for
+ *  benchmarks, through the same commands a user would run. The history
+ *  has a number of branches that each receive a commit per step, changing
+ *  about one file in twenty, and that merge master in at a fixed interval.
+ *  Contents come from a seeded generator, so the same parameters always
+ *  produce the same files.
+ * @author taoxinyyyun
+ */
+class SyntheticRepo {
+
+    /** Number of files tracked. */
+    private final int files;
+
+    /** Size of each file, in bytes. */
+    private final int fileSize;
+
+    /** Number of commits made on each branch. */
+    private final int depth;
+
+    /** Number of branches besides master. */
+    private final int branches;
+
+    /** Steps between merges of master into the other branches, or 0 for
+     *  no merges. */
+    private final int mergeEvery;
+
+    /** Source of file contents. */
+    private final Random random = new Random(61);
+
+    /** A generator of repositories with FILES files of FILESIZE bytes,
+     *  DEPTH commits on each of master and BRANCHES other branches, which
+     *  merge master every MERGEEVERY steps.
+     * @param files number of files
+     * @param fileSize size of each file
+     * @param depth commits per branch
+     * @param branches branches besides master
+     * @param mergeEvery steps between merges, or 0 */
+    SyntheticRepo(int files, int fileSize, int depth, int branches,
+                  int mergeEvery) {
+        this.files = files;
+        this.fileSize = fileSize;
+        this.depth = depth;
+        this.branches = branches;
+        this.mergeEvery = mergeEvery;
+    }
+
+    /** Generate the repository in the current directory, which must not
+     *  have one yet, and leave master checked out. */
+    void generate() {
+        if (new File(".gitlet").exists()) {
+            throw new GitletException("A Gitlet version-control system "
+                    + "already exists in the current directory.");
+        }
+        run("init");
+        for (int i = 0; i < files; i++) {
+            writeFile(i);
+            run("add", fileName(i));
+        }
+        run("commit", "master 0");
+        for (int b = 1; b <= branches; b++) {
+            run("branch", branchName(b));
+        }
+        int changed = Math.max(1, files / 20);
+        for (int step = 1; step <= depth; step++) {
+            for (int b = 0; b <= branches; b++) {
+                String branch = branchName(b);
+                run("checkout", branch);
+                for (int i = 0; i < changed; i++) {
+                    int n = random.nextInt(files);
+                    writeFile(n);
+                    run("add", fileName(n));
+                }
+                run("commit", branch + " " + step);
+                if (b > 0 && mergeEvery > 0 && step % mergeEvery == 0) {
+                    run("merge", "master");
+                }
+            }
+        }
+        run("checkout", "master");
+    }
+
+    /** Return the name of branch B, where branch 0 is master.
+     * @param b the branch's number
+     * @return its name */
+    static String branchName(int b) {
+        return b == 0 ? "master" : "b" + b;
+    }
+
+    /** Return the name of file N.
+     * @param n the file's number
+     * @return its name */
+    static String fileName(int n) {
+        return String.format("f%05d.txt", n);
+    }
+
+    /** Write random lines to file N.
+     * @param n the file's number */
+    void writeFile(int n) {
+        StringBuilder data = new StringBuilder(fileSize);
+        while (data.length() < fileSize) {
+            data.append(Integer.toHexString(random.nextInt()));
+            data.append(data.length() % 64 < 8 ? '\n' : ' ');
+        }
+        data.setLength(fileSize);
+        writeContents(new File(fileName(n)), data.toString());
+    }
+
+    /** Run the gitlet command ARGS on the repository in the current
+     *  directory through a fresh Gitlet handle, so that, as with Main, the
+     *  repository is read before the command and saved after it. Output
+     *  goes to the current System.out; errors are thrown.
+     * @param args the command line */
+    static void run(String... args) {
+        File dir = new File(System.getProperty("user.dir"));
+        if (args[0].equals("init")) {
+            Gitlet.init(dir);
+            return;
+        }
+        Gitlet.Result result = Gitlet.open(dir).run(args);
+        System.out.print(result.getOutput());
+        if (!result.succeeded()) {
+            throw new GitletException(result.getError());
+        }
+    }
+}
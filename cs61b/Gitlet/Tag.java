@@ -0,0 +1,93 @@
+package gitlet;
+
+import java.io.Serializable;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static gitlet.Utils.sha1;
+
+/** An annotated tag: a named, dated message attached to a commit. Stored
+ *  in the object directory alongside commits, under the SHA1 of its
+ *  contents.
+ * @author taoxinyyyun
+ */
+public class Tag implements Serializable {
+    private static final long serialVersionUID = 1383246679917182216L;
+
+    /** Prefix of the names of tag references. */
+    static final String PREFIX = "refs/tags/";
+
+    /** The name of the tag. */
+    private String name;
+
+    /** The SHA1 of the tagged commit. */
+    private String target;
+
+    /** The tag message. */
+    private String message;
+
+    /** The time when this tag is created. */
+    private String date;
+
+    /** The SHA1 of this tag. */
+    private String _SHA1;
+
+    /** Create a new annotated tag.
+     * @param n the tag's name
+     * @param commit the SHA1 of the tagged commit
+     * @param m the tag message */
+    public Tag(String n, String commit, String m) {
+        this(n, commit, m, new SimpleDateFormat("E MMM d HH:mm:ss yyyy Z")
+                .format(new Date()));
+    }
+
+    /** Create an annotated tag made at a given date, as when it is
+     *  imported.
+     * @param n the tag's name
+     * @param commit the SHA1 of the tagged commit
+     * @param m the tag message
+     * @param d the date */
+    public Tag(String n, String commit, String m, String d) {
+        this.name = n;
+        this.target = commit;
+        this.message = m;
+        this.date = d;
+        this._SHA1 = computeSHA1();
+    }
+
+    /** Compute the SHA1 of this tag from its contents.
+     * @return the sha1 */
+    public String computeSHA1() {
+        return sha1("tag", name, target, date, message);
+    }
+
+    /** Get the tag's SHA1 code.
+     * @return the sha1 */
+    public String getSHA1() {
+        return _SHA1;
+    }
+
+    /** Get the tag's name.
+     * @return its name */
+    public String getName() {
+        return name;
+    }
+
+    /** Get the SHA1 of the tagged commit.
+     * @return the target */
+    public String getTarget() {
+        return target;
+    }
+
+    /** Get the tag message.
+     * @return the message */
+    public String getMessage() {
+        return message;
+    }
+
+    /** Get the date.
+     * @return the date */
+    public String getDate() {
+        return date;
+    }
+}
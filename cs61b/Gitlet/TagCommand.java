@@ -0,0 +1,96 @@
+package gitlet;
+
+import static gitlet.Utils.*;
+
+/** A command that creates, deletes and lists tags. Tags live in the
+ *  repository's packed references rather than in the serialized
+ *  repository, so they stay cheap to look up however many there are.
+ * @author taoxinyyyun
+ */
+public class TagCommand extends Command {
+
+    /** the constructor.
+     * @param repository the repository
+     * @param arg the arguments */
+    public TagCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** Lists tags with no operands, deletes one with tag -d NAME, creates
+     *  an annotated tag with tag -a NAME MESSAGE [COMMIT], and otherwise
+     *  creates a lightweight tag with tag NAME [COMMIT]. Tags point at the
+     *  head commit unless a commit is given. */
+    public void run() throws GitletException {
+        RefStore refs = repo.getRefs();
+        if (args.length == 1) {
+            for (String name : refs.all(Tag.PREFIX).keySet()) {
+                getOut().println(name.substring(Tag.PREFIX.length()));
+            }
+        } else if (args[1].equals("-d")) {
+            if (args.length != 3) {
+                throw new GitletException("Incorrect operands.");
+            }
+            String old = refs.get(Tag.PREFIX + args[2]);
+            if (old == null) {
+                throw new GitletException("A tag with that name "
+                        + "does not exist.");
+            }
+            refs.update(Tag.PREFIX + args[2], old, null);
+        } else if (args[1].equals("-a")) {
+            if (args.length != 4 && args.length != 5) {
+                throw new GitletException("Incorrect operands.");
+            }
+            checkName(args[2]);
+            String target = target(args.length == 5 ? args[4] : null);
+            Tag tag = new Tag(args[2], target, args[3]);
+            repo.writeObjectFile(tag.getSHA1(), tag);
+            create(refs, args[2], tag.getSHA1());
+        } else {
+            if (args.length > 3) {
+                throw new GitletException("Incorrect operands.");
+            }
+            checkName(args[1]);
+            create(refs, args[1], target(args.length == 3 ? args[2] : null));
+        }
+    }
+
+    /** Return the SHA1 of the commit a new tag should point at.
+     * @param id the commit given on the command line, or null
+     * @return the target */
+    private String target(String id) throws GitletException {
+        if (id == null) {
+            return repo.getBranches().get(repo.getActiveBranch());
+        }
+        return repo.getCommit(id).getSHA1();
+    }
+
+    /** Refuse a tag NAME that getCommit would take for an abbreviated or
+     *  full commit id or for a reflog entry, since it could not be used.
+     * @param name the tag's name */
+    private void checkName(String name) throws GitletException {
+        if (name.matches("[0-9a-f]{8}|[0-9a-f]{40}")
+                || name.contains("@{")) {
+            throw new GitletException("A tag name cannot look like a "
+                    + "commit id or a reflog entry.");
+        }
+    }
+
+    /** Create the tag NAME pointing at CODE, failing if it exists.
+     * @param refs the references
+     * @param name the tag's name
+     * @param code the SHA1 it points at */
+    private void create(RefStore refs, String name, String code)
+        throws GitletException {
+        if (refs.get(Tag.PREFIX + name) != null) {
+            throw new GitletException("A tag with that name "
+                    + "already exists.");
+        }
+        refs.update(Tag.PREFIX + name, null, code);
+    }
+}
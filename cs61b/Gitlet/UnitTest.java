@@ -0,0 +1,375 @@
+package gitlet;
+
+import ucb.junit.textui;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+/** The suite of all JUnit tests for the gitlet package.
+ *  @author taoxinyyyun
+ */
+public class UnitTest {
+
+    /** Run the JUnit tests in the gitlet package. Add xxxTest.class
+     *  entries to the arguments of runClasses to run other JUnit tests. */
+    public static void main(String[] ignored) {
+        System.exit(textui.runClasses(UnitTest.class));
+    }
+
+    /** Return a new empty directory for one test.
+     * @return the directory */
+    private static File tempDir() {
+        try {
+            return Files.createTempDirectory("gitlet-test").toFile();
+        } catch (IOException e) {
+            throw new AssertionError("cannot create a directory", e);
+        }
+    }
+
+    /** Return N pseudo-random bytes, the same for the same SEED.
+     * @param n the number of bytes
+     * @param seed the seed
+     * @return the bytes */
+    private static byte[] randomBytes(int n, long seed) {
+        byte[] result = new byte[n];
+        new Random(seed).nextBytes(result);
+        return result;
+    }
+
+    /** Return a blob holding TEXT.
+     * @param text the contents
+     * @param name the file's name
+     * @return the blob */
+    private static Blob blob(String text, String name) {
+        return new Blob(text.getBytes(), name);
+    }
+
+    @Test
+    public void testLines() {
+        assertArrayEquals(new String[] {"a", "b"},
+                LineDiff.lines("a\nb\n".getBytes()));
+        assertArrayEquals(new String[] {"a", "b"},
+                LineDiff.lines("a\nb".getBytes()));
+        assertArrayEquals(new String[] {"a", ""},
+                LineDiff.lines("a\n\n".getBytes()));
+        assertEquals(0, LineDiff.lines(new byte[0]).length);
+    }
+
+    @Test
+    public void testMatchEdits() {
+        String[] older = {"a", "b", "c", "d"};
+        assertArrayEquals(new int[] {0, 1, 2, 3},
+                LineDiff.match(older, older));
+        assertArrayEquals(new int[] {0, -1, 2, 3},
+                LineDiff.match(older, new String[] {"a", "x", "c", "d"}));
+        assertArrayEquals(new int[] {-1, 0, 1, 2, 3},
+                LineDiff.match(older, new String[] {"z", "a", "b", "c",
+                    "d"}));
+        assertArrayEquals(new int[] {0, 3},
+                LineDiff.match(older, new String[] {"a", "d"}));
+        assertArrayEquals(new int[] {-1, -1},
+                LineDiff.match(new String[0], new String[] {"a", "b"}));
+    }
+
+    @Test
+    public void testMatchIsLongestCommonSubsequence() {
+        String[] older = {"a", "b", "c", "a", "b", "b", "a"};
+        String[] newer = {"c", "b", "a", "b", "a", "c"};
+        int[] match = LineDiff.match(older, newer);
+        int kept = 0;
+        int last = -1;
+        for (int j = 0; j < newer.length; j++) {
+            if (match[j] >= 0) {
+                assertTrue("matches out of order", match[j] > last);
+                assertEquals(older[match[j]], newer[j]);
+                last = match[j];
+                kept += 1;
+            }
+        }
+        assertEquals(4, kept);
+    }
+
+    @Test
+    public void testExactRename() {
+        HashMap<String, Blob> prev = new HashMap<>();
+        prev.put("a.txt", blob("hello\n", "a.txt"));
+        prev.put("same.txt", blob("same\n", "same.txt"));
+        HashMap<String, Blob> curr = new HashMap<>();
+        curr.put("b.txt", blob("hello\n", "b.txt"));
+        curr.put("same.txt", blob("same\n", "same.txt"));
+        HashMap<String, String> renames = RenameDetector.detect(prev, curr);
+        assertEquals(1, renames.size());
+        assertEquals("a.txt", renames.get("b.txt"));
+    }
+
+    @Test
+    public void testSimilarRename() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        String edited = text.toString().replace("line 7\n", "changed\n");
+        HashMap<String, Blob> prev = new HashMap<>();
+        prev.put("old.txt", blob(text.toString(), "old.txt"));
+        prev.put("gone.txt", blob("nothing like it\n", "gone.txt"));
+        HashMap<String, Blob> curr = new HashMap<>();
+        curr.put("new.txt", blob(edited, "new.txt"));
+        curr.put("other.txt", blob("entirely different\n", "other.txt"));
+        HashMap<String, String> renames = RenameDetector.detect(prev, curr);
+        assertEquals(1, renames.size());
+        assertEquals("old.txt", renames.get("new.txt"));
+    }
+
+    @Test
+    public void testNoRenameWithoutDeletions() {
+        HashMap<String, Blob> prev = new HashMap<>();
+        prev.put("a.txt", blob("x\n", "a.txt"));
+        HashMap<String, Blob> curr = new HashMap<>(prev);
+        curr.put("b.txt", blob("x\n", "b.txt"));
+        assertTrue(RenameDetector.detect(prev, curr).isEmpty());
+    }
+
+    @Test
+    public void testRefStoreUpdates() {
+        RefStore refs = new RefStore(tempDir());
+        String one = Utils.sha1("one");
+        String two = Utils.sha1("two");
+        assertNull("empty store", refs.get("refs/tags/v1"));
+        refs.update("refs/tags/v1", null, one);
+        refs.update("refs/tags/v0", null, two);
+        assertEquals(one, refs.get("refs/tags/v1"));
+        assertEquals(two, refs.get("refs/tags/v0"));
+        refs.update("refs/tags/v1", one, two);
+        assertEquals(two, refs.get("refs/tags/v1"));
+        refs.update("refs/tags/v0", two, null);
+        assertNull("deleted", refs.get("refs/tags/v0"));
+        assertNull("prefix of a name", refs.get("refs/tags/v"));
+    }
+
+    @Test
+    public void testRefStoreRejectsStaleUpdate() {
+        RefStore refs = new RefStore(tempDir());
+        String one = Utils.sha1("one");
+        refs.update("refs/tags/v1", null, one);
+        try {
+            refs.update("refs/tags/v1", null, Utils.sha1("two"));
+            fail("update of a changed reference succeeded");
+        } catch (GitletException e) {
+            assertEquals(one, refs.get("refs/tags/v1"));
+        }
+    }
+
+    @Test
+    public void testRefStoreLookupAndPrefix() {
+        RefStore refs = new RefStore(tempDir());
+        TreeMap<String, String> expected = new TreeMap<>();
+        for (int i = 0; i < 200; i += 1) {
+            String name = (i % 2 == 0 ? "refs/tags/t" : "refs/notes/n") + i;
+            String code = Utils.sha1(name);
+            refs.update(name, null, code);
+            if (i % 2 == 0) {
+                expected.put(name, code);
+            }
+        }
+        for (int i = 0; i < 200; i += 1) {
+            String name = (i % 2 == 0 ? "refs/tags/t" : "refs/notes/n") + i;
+            assertEquals(Utils.sha1(name), refs.get(name));
+        }
+        assertEquals(expected, refs.all("refs/tags/"));
+    }
+
+    @Test
+    public void testIgnorePatterns() {
+        IgnoreRules rules = new IgnoreRules(Arrays.asList("*.o", "build/",
+                "/top.txt", "docs/**/*.tmp", "!keep.o", "# comment"));
+        assertTrue(rules.matches("x.o", false));
+        assertTrue(rules.matches("a/b/x.o", false));
+        assertFalse(rules.matches("keep.o", false));
+        assertFalse(rules.matches("x.oo", false));
+        assertTrue(rules.matches("build", true));
+        assertFalse(rules.matches("build", false));
+        assertTrue(rules.matches("build/out.txt", false));
+        assertTrue(rules.matches("src/build/out.txt", false));
+        assertTrue(rules.matches("top.txt", false));
+        assertFalse(rules.matches("sub/top.txt", false));
+        assertTrue(rules.matches("docs/a.tmp", false));
+        assertTrue(rules.matches("docs/a/b/c.tmp", false));
+        assertFalse(rules.matches("src/a.tmp", false));
+        assertFalse(rules.matches("# comment", false));
+    }
+
+    @Test
+    public void testIgnoreLastPatternWins() {
+        IgnoreRules rules = new IgnoreRules(Arrays.asList("*.log",
+                "!important.log", "important.log"));
+        assertTrue(rules.matches("important.log", false));
+        IgnoreRules none = new IgnoreRules(Arrays.asList());
+        assertFalse(none.matches("anything", false));
+    }
+
+    @Test
+    public void testGlobMatches() {
+        assertTrue(IgnoreRules.globMatches("*.java", "Main.java"));
+        assertTrue(IgnoreRules.globMatches("a?c", "abc"));
+        assertTrue(IgnoreRules.globMatches("*", ""));
+        assertTrue(IgnoreRules.globMatches("a*b*c", "axxbyyc"));
+        assertFalse(IgnoreRules.globMatches("a?c", "ac"));
+        assertFalse(IgnoreRules.globMatches("*.java", "Main.javax"));
+    }
+
+    @Test
+    public void testChunkSizes() {
+        byte[] data = randomBytes(2 * 1024 * 1024, 1);
+        assertEquals(100, Chunker.cut(data, 0, 100));
+        int pos = 0;
+        while (pos < data.length) {
+            int len = Chunker.cut(data, pos, data.length);
+            assertTrue("chunk too long", len <= Chunker.MAX_SIZE);
+            assertTrue("chunk too short", len >= Chunker.MIN_SIZE
+                    || pos + len == data.length);
+            assertEquals(len, Chunker.cut(data, pos, data.length));
+            pos += len;
+        }
+        assertEquals(data.length, pos);
+    }
+
+    @Test
+    public void testChunksSurviveInsertion() {
+        ChunkStore store = new ChunkStore(tempDir());
+        byte[] data = randomBytes(2 * 1024 * 1024, 2);
+        byte[] edited = new byte[data.length + 10];
+        int at = data.length / 2;
+        System.arraycopy(data, 0, edited, 0, at);
+        System.arraycopy(data, at, edited, at + 10, data.length - at);
+
+        Blob before = new Blob(data, "big", store);
+        Blob after = new Blob(edited, "big", store);
+        assertNotNull("large blob is chunked", before.getChunks());
+        HashSet<String> old = new HashSet<>(Arrays.asList(
+                before.getChunks()));
+        int fresh = 0;
+        for (String code : after.getChunks()) {
+            if (!old.contains(code)) {
+                fresh += 1;
+            }
+        }
+        assertTrue("too many new chunks: " + fresh, fresh <= 2);
+        assertArrayEquals(data, before.getContents());
+        assertArrayEquals(edited, after.getContents());
+        assertEquals(Utils.sha1((Object) edited), after.getSha1hash());
+    }
+
+    @Test
+    public void testChunkStore() {
+        ChunkStore store = new ChunkStore(tempDir());
+        byte[] chunk = "a chunk".getBytes();
+        String code = store.put(chunk);
+        assertEquals(Utils.sha1((Object) chunk), code);
+        assertEquals(code, store.put(chunk));
+        assertArrayEquals(chunk, store.get(code));
+        String other = store.put("another".getBytes());
+        List<String> all = store.all();
+        assertEquals(2, all.size());
+        assertTrue(all.contains(code) && all.contains(other));
+        try {
+            store.get(Utils.sha1("absent"));
+            fail("read a missing chunk");
+        } catch (GitletException e) {
+            assertTrue(e.getMessage().startsWith("Missing chunk"));
+        }
+    }
+
+    @Test
+    public void testRefLogRotation() {
+        RefLog log = new RefLog(new File(tempDir(), "logs"));
+        String a = "1111111111111111111111111111111111111111";
+        String b = "2222222222222222222222222222222222222222";
+        log.append("release-1.1", null, a, "branch: created");
+        for (long i = 0; i <= RefLog.MAX_SIZE / RefLog.RECORD; i++) {
+            log.append("release-1", a, b, "commit");
+        }
+        assertEquals(Arrays.asList("release-1", "release-1.1"),
+                log.branches());
+        assertEquals(1, log.read("release-1.1", 10).size());
+        assertEquals(a, log.read("release-1.1", 10).get(0).getNew());
+        assertEquals(RefLog.MAX_SIZE / RefLog.RECORD + 1,
+                log.read("release-1", Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testRefLogKeepsWholeCharacters() {
+        RefLog log = new RefLog(new File(tempDir(), "logs"));
+        StringBuilder command = new StringBuilder("xy");
+        for (int i = 0; i < 40; i++) {
+            command.append('\u00e9');
+        }
+        log.append("master", null, RefLog.NONE, command.toString());
+        String kept = log.read("master", 1).get(0).getCommand();
+        assertEquals(command.substring(0, 40), kept);
+    }
+
+    @Test
+    public void testRebaseAcrossRename() {
+        File dir = tempDir();
+        Gitlet g = Gitlet.init(dir);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        Utils.writeContents(new File(dir, "f.txt"), text.toString());
+        assertTrue(g.run("add", "f.txt").succeeded());
+        assertTrue(g.run("commit", "base").succeeded());
+        assertTrue(g.run("branch", "topic").succeeded());
+        assertTrue(g.run("rm", "f.txt").succeeded());
+        Utils.writeContents(new File(dir, "g.txt"), text.toString());
+        assertTrue(g.run("add", "g.txt").succeeded());
+        assertTrue(g.run("commit", "rename").succeeded());
+
+        assertTrue(g.run("checkout", "topic").succeeded());
+        String edited = text.toString().replace("line 3\n", "edited\n");
+        Utils.writeContents(new File(dir, "f.txt"), edited);
+        assertTrue(g.run("add", "f.txt").succeeded());
+        assertTrue(g.run("commit", "edit").succeeded());
+        Gitlet.Result rebase = g.run("rebase", "master");
+        assertTrue(rebase.getError(), rebase.succeeded());
+
+        assertFalse(new File(dir, "f.txt").exists());
+        assertEquals(edited,
+                Utils.readContentsAsString(new File(dir, "g.txt")));
+        Gitlet.Result fsck = g.run("fsck");
+        assertTrue(fsck.succeeded());
+        assertTrue(fsck.getOutput(), fsck.getOutput().startsWith("Checked"));
+    }
+
+    @Test
+    public void testStashPopKeepsLocalChanges() {
+        File dir = tempDir();
+        Gitlet g = Gitlet.init(dir);
+        File f = new File(dir, "f.txt");
+        Utils.writeContents(f, "one\n");
+        assertTrue(g.run("add", "f.txt").succeeded());
+        assertTrue(g.run("commit", "one").succeeded());
+        Utils.writeContents(f, "stashed\n");
+        assertTrue(g.run("stash").succeeded());
+        assertEquals("one\n", Utils.readContentsAsString(f));
+
+        Utils.writeContents(f, "unsaved\n");
+        Gitlet.Result pop = g.run("stash", "pop");
+        assertFalse(pop.succeeded());
+        assertEquals("unsaved\n", Utils.readContentsAsString(f));
+
+        Utils.writeContents(f, "one\n");
+        pop = g.run("stash", "pop");
+        assertTrue(pop.getError(), pop.succeeded());
+        assertEquals("stashed\n", Utils.readContentsAsString(f));
+    }
+}
@@ -0,0 +1,57 @@
+package gitlet;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.HashMap;
+
+/** The state that belongs to one working directory of a repository rather
+ *  than to the repository as a whole. A worktree shares its commits and
+ *  branches with the main working directory, but has its own current
+ *  branch, staging area and files staged for removal.
+ * @author taoxinyyyun
+ */
+public class Worktree implements Serializable {
+    private static final long serialVersionUID = -1877390849082952652L;
+
+    /** The branch checked out in this worktree. */
+    private String activeBranch;
+
+    /** A mapping that maps files staged for removal to their names. */
+    private HashMap<String, File> removeFiles;
+
+    /** The working directory of this worktree. */
+    private File workingDirectory;
+
+    /** Create the state of a new worktree.
+     * @param branch the branch checked out in it
+     * @param dir its working directory */
+    public Worktree(String branch, File dir) {
+        activeBranch = branch;
+        workingDirectory = dir;
+        removeFiles = new HashMap<String, File>();
+    }
+
+    /** Get the current branch.
+     * @return the active branch */
+    public String getActiveBranch() {
+        return activeBranch;
+    }
+
+    /** Set the current branch.
+     * @param branchname name of branch */
+    public void setActiveBranch(String branchname) {
+        activeBranch = branchname;
+    }
+
+    /** get all files staged for removal.
+     * @return all files staged for removal */
+    public HashMap<String, File> getRemoveFiles() {
+        return removeFiles;
+    }
+
+    /** Get the working directory.
+     * @return the working directory */
+    public File getWorkingDirectory() {
+        return workingDirectory;
+    }
+}
@@ -0,0 +1,64 @@
+package gitlet;
+
+import java.io.File;
+import java.util.Map;
+
+import static gitlet.Utils.*;
+
+/** A command that adds working directories to a repository. Each one gets
+ *  a small .gitlet directory of its own, holding its staging area and
+ *  current branch, that points back at the shared commits and branches.
+ * @author taoxinyyyun
+ */
+public class WorktreeCommand extends Command {
+
+    /** the constructor.
+     * @param repository the repository
+     * @param arg the arguments */
+    public WorktreeCommand(Repository repository, String[] arg) {
+        super(repository, arg);
+    }
+
+    /** The repository. */
+    private Repository repo = getRepo();
+
+    /** The arguments.*/
+    private String[] args = getArgs();
+
+    /** Creates a worktree in the given directory with the given branch
+     *  checked out: worktree add DIR BRANCH. */
+    public void run() throws GitletException {
+        if (args.length != 4 || !args[1].equals("add")) {
+            throw new GitletException("Incorrect operands.");
+        }
+        File dir = new File(args[2]);
+        if (!dir.isAbsolute()) {
+            dir = join(repo.getWorkingDirectory(), args[2]);
+        }
+        String branchName = args[3];
+        String headCode = repo.getBranch(branchName);
+        if (branchName.equals(repo.getActiveBranch())
+                || repo.checkedOutElsewhere(branchName)) {
+            throw new GitletException("That branch is already checked out.");
+        }
+        File gitletDir = join(dir, ".gitlet");
+        if (gitletDir.exists()) {
+            throw new GitletException("A Gitlet version-control system "
+                    + "already exists in that directory.");
+        }
+        dir.mkdirs();
+        gitletDir.mkdir();
+        join(gitletDir, "staging").mkdir();
+        writeContents(join(gitletDir, "commondir"),
+                repo.getObjectsDirectory().getAbsolutePath());
+        writeObject(join(gitletDir, "worktree"),
+                new Worktree(branchName, dir));
+        repo.addWorktree(dir, branchName);
+
+        Commit head = repo.getCommit(headCode);
+        for (Map.Entry<String, Blob> file
+                : head.getTrackedBlobs().entrySet()) {
+            file.getValue().writeTo(join(dir, file.getKey()));
+        }
+    }
+}
@@ -6,14 +6,20 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Formatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Random;
 
 import java.util.regex.Pattern;
 
 import static loa.Piece.*;
 import static loa.Square.*;
 
-/** Represents the state of a game of Lines of Action.
+/** Represents the state of a game of Lines of Action.  The pieces of
+ *  each side are kept as a bitboard: bit S.index() of _black (_white)
+ *  is set iff square S holds a black (white) piece.  The number of pieces
+ *  on every row, column and diagonal is kept up to date as pieces move,
+ *  so that finding how far a piece may move needs no scan of its line.
  *  @author Tess
  */
 class Board {
@@ -21,6 +27,11 @@ class Board {
     /** Default number of moves for each side that results in a draw. */
     static final int DEFAULT_MOVE_LIMIT = 60;
 
+    /** An upper bound on the number of legal moves in any position,
+     *  including those set up by hand: each piece moves in at most 8
+     *  directions. */
+    static final int MAX_MOVES = 8 * NUM_SQUARES;
+
     /** Pattern describing a valid square designator (cr). */
     static final Pattern ROW_COL = Pattern.compile("^[a-h][1-8]$");
 
@@ -53,6 +64,10 @@ class Board {
     void initialize(Piece[][] contents, Piece side) {
         _turn = side;
         _moveLimit = DEFAULT_MOVE_LIMIT;
+        _moves.clear();
+        _black = _white = 0;
+        _key = side == WP ? ZOBRIST_WHITE_TO_MOVE : 0;
+        Arrays.fill(_lineCounts, 0);
         for (int i = 0; i < BOARD_SIZE; i++) {
             for (int j = 0; j < BOARD_SIZE; j++) {
                 Square s = sq(j, i);
@@ -72,30 +87,60 @@ class Board {
         if (board == this) {
             return;
         }
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                Square s = sq(j, i);
-                Piece p = board.get(s);
-                set(s, p);
-            }
-        }
+        _black = board._black;
+        _white = board._white;
+        System.arraycopy(board._lineCounts, 0, _lineCounts, 0, NUM_LINES);
+        _groups[0] = board._groups[0];
+        _groups[1] = board._groups[1];
+        _groupsKnown = board._groupsKnown;
+        _groupHistoryStart = movesMade();
+        _winnerKnown = false;
         _turn = board.turn();
+        _key = board._key;
         _moveLimit = DEFAULT_MOVE_LIMIT;
     }
 
     /** Return the contents of the square at SQ. */
     Piece get(Square sq) {
-        return _board[sq.index()];
+        long bit = 1L << sq.index();
+        if ((_black & bit) != 0) {
+            return BP;
+        } else if ((_white & bit) != 0) {
+            return WP;
+        } else {
+            return EMP;
+        }
     }
 
     /** Set the square at SQ to V and set the side that is to move next
      *  to NEXT, if NEXT is not null. */
     void set(Square sq, Piece v, Piece next) {
-        int ind = sq.index();
-        _board[ind] = v;
+        long bit = 1L << sq.index();
+        if (((_black | _white) & bit) != 0) {
+            count(sq.index(), -1);
+            _key ^= ZOBRIST[get(sq).ordinal()][sq.index()];
+        }
+        if (v != EMP) {
+            _key ^= ZOBRIST[v.ordinal()][sq.index()];
+        }
+        if (next != null && next != _turn) {
+            _key ^= ZOBRIST_WHITE_TO_MOVE;
+        }
+        if (v != EMP) {
+            count(sq.index(), 1);
+        }
+        _black &= ~bit;
+        _white &= ~bit;
+        if (v == BP) {
+            _black |= bit;
+        } else if (v == WP) {
+            _white |= bit;
+        }
         if (next != null) {
             _turn = next;
         }
+        _groupsKnown = _winnerKnown = false;
+        _groupHistoryStart = movesMade();
     }
 
     /** Set the square at SQ to V, without modifying the side that
@@ -119,36 +164,83 @@ class Board {
      *  the capturing move. */
     void makeMove(Move move) {
         assert isLegal(move);
-        Square from = move.getFrom();
-        Square to = move.getTo();
-        Piece curr = get(from);
-        Piece next = get(to);
-        set(from, EMP);
-        set(to, curr);
-        if (next == turn().opposite()) {
+        int fromIndex = move.getFrom().index();
+        int toIndex = move.getTo().index();
+        long from = 1L << fromIndex;
+        long to = 1L << toIndex;
+        saveGroups();
+        count(fromIndex, -1);
+        if (((_black | _white) & to) != 0) {
             move = move.captureMove();
+        } else {
+            count(toIndex, 1);
+        }
+        if (_turn == BP) {
+            _black ^= from | to;
+            _white &= ~to;
+        } else {
+            _white ^= from | to;
+            _black &= ~to;
+        }
+        int side = _turn.ordinal();
+        _key ^= ZOBRIST[side][fromIndex] ^ ZOBRIST[side][toIndex]
+            ^ ZOBRIST_WHITE_TO_MOVE;
+        if (move.isCapture()) {
+            _key ^= ZOBRIST[1 - side][toIndex];
+        }
+        long own = side == 0 ? _black : _white;
+        long opp = side == 0 ? _white : _black;
+        int left = localGroups(fromIndex, own & ~to);
+        int joined = localGroups(toIndex, own & ~to);
+        if (left == UNKNOWN || joined == UNKNOWN) {
+            _groups[side] = countGroups(own);
+        } else {
+            _groups[side] += left - joined;
+        }
+        if (move.isCapture()) {
+            int captured = localGroups(toIndex, opp);
+            if (captured == UNKNOWN) {
+                _groups[1 - side] = countGroups(opp);
+            } else {
+                _groups[1 - side] += captured - 1;
+            }
         }
         _moves.add(move);
         _turn = _turn.opposite();
-        _subsetsInitialized = false;
+        _winnerKnown = false;
     }
 
     /** Retract (unmake) one move, returning to the state immediately before
      *  that move.  Requires that movesMade () > 0. */
     void retract() {
         assert movesMade() > 0;
-        Move last = _moves.get(_moves.size() - 1);
-        Square from = last.getFrom();
-        Square to = last.getTo();
-        Piece ret = get(to);
-        set(from, ret);
+        Move last = _moves.remove(_moves.size() - 1);
+        long from = 1L << last.getFrom().index();
+        long to = 1L << last.getTo().index();
+        count(last.getFrom().index(), 1);
         if (!last.isCapture()) {
-            set(to, EMP);
-        } else {
-            set(to, _turn);
+            count(last.getTo().index(), -1);
         }
-        _moves.remove(_moves.size() - 1);
         _turn = _turn.opposite();
+        if (_turn == BP) {
+            _black ^= from | to;
+            if (last.isCapture()) {
+                _white |= to;
+            }
+        } else {
+            _white ^= from | to;
+            if (last.isCapture()) {
+                _black |= to;
+            }
+        }
+        int side = _turn.ordinal();
+        _key ^= ZOBRIST[side][last.getFrom().index()]
+            ^ ZOBRIST[side][last.getTo().index()] ^ ZOBRIST_WHITE_TO_MOVE;
+        if (last.isCapture()) {
+            _key ^= ZOBRIST[1 - side][last.getTo().index()];
+        }
+        restoreGroups();
+        _winnerKnown = false;
     }
 
     /** Return the Piece representing who is next to move. */
@@ -159,42 +251,19 @@ class Board {
     /** Return true iff FROM - TO is a legal move for the player currently on
      *  move. */
     boolean isLegal(Square from, Square to) {
-        if (!from.isValidMove(to) || !exists(to.col(), to.row())) {
+        if (!from.isValidMove(to) || get(from) != _turn) {
             return false;
-        } else if (blocked(from, to)) {
-            return false;
-        } else {
-            int d = from.distance(to);
-            int dir = from.direction(to);
-            int pieces = countPiece(from, dir);
-            if (d != pieces) {
-                return false;
-            }
         }
-        return true;
+        int dir = from.direction(to);
+        return from.distance(to) == countPiece(from, dir)
+            && !blocked(from.index(), to.index(), dir);
     }
 
     /** Return the number of pieces on the line along which to move.
      * @param dir the direction that is looked at
      * @param from the current square. */
     int countPiece(Square from, int dir) {
-        int count = 0;
-        Square curr = from;
-        while (curr != null) {
-            if (get(curr) != EMP) {
-                count += 1;
-            }
-            curr = curr.moveDest(dir, 1);
-        }
-        int opp = (dir + 4) % BOARD_SIZE;
-        curr = from.moveDest(opp, 1);
-        while (curr != null) {
-            if (get(curr) != EMP) {
-                count += 1;
-            }
-            curr = curr.moveDest(opp, 1);
-        }
-        return count;
+        return _lineCounts[LINE_IDS[from.index()][dir]];
     }
 
     /** Return true iff MOVE is legal for the player currently on move.
@@ -205,19 +274,41 @@ class Board {
 
     /** Return a sequence of all legal moves from this position. */
     List<Move> legalMoves() {
-        ArrayList<Move> legals = new ArrayList<>();
-        for (Square s : ALL_SQUARES) {
-            if (get(s) == _turn) {
-                for (int i = 0; i < 8; i++) {
-                    int n = countPiece(s, i);
-                    Square target = s.moveDest(i, n);
-                    if (target != null && isLegal(s, target)) {
-                        legals.add(Move.mv(s, target));
-                    }
+        int[] moves = new int[MAX_MOVES];
+        int n = generateMoves(moves, 0);
+        ArrayList<Move> legals = new ArrayList<>(n);
+        for (int i = 0; i < n; i += 1) {
+            legals.add(Move.mv(moves[i] & ~Move.CAPTURE));
+        }
+        return legals;
+    }
+
+    /** Write all legal moves from this position into BUFFER, packed as by
+     *  Move.packed() with captures marked, starting at index START.
+     *  BUFFER must have room for MAX_MOVES moves after START.  Return the
+     *  index just past the last move written.  Allocates nothing. */
+    int generateMoves(int[] buffer, int start) {
+        int end = start;
+        long occupied = _black | _white;
+        for (long own = _turn == BP ? _black : _white; own != 0;
+             own &= own - 1) {
+            int from = Long.numberOfTrailingZeros(own);
+            for (int dir = 0; dir < 8; dir += 1) {
+                int n = _lineCounts[LINE_IDS[from][dir]];
+                int to = DESTS[from][dir][n];
+                if (to >= 0 && !blocked(from, to, dir)) {
+                    buffer[end] = Move.pack(from, to,
+                                            (occupied & (1L << to)) != 0);
+                    end += 1;
                 }
             }
         }
-        return legals;
+        return end;
+    }
+
+    /** Assuming isLegal(Move.mv(MOVE)), make the packed move MOVE. */
+    void makeMove(int move) {
+        makeMove(Move.mv(move & ~Move.CAPTURE));
     }
 
     /** Return true iff the game is over (either player has all his
@@ -228,7 +319,8 @@ class Board {
 
     /** Return true iff SIDE's pieces are continguous. */
     boolean piecesContiguous(Piece side) {
-        return getRegionSizes(side).size() == 1;
+        findGroups();
+        return _groups[side.ordinal()] == 1;
     }
 
     /** Return the winning side, if any.  If the game is not over, result is
@@ -259,13 +351,25 @@ class Board {
 
     @Override
     public boolean equals(Object obj) {
+        if (!(obj instanceof Board)) {
+            return false;
+        }
         Board b = (Board) obj;
-        return Arrays.deepEquals(_board, b._board) && _turn == b._turn;
+        return _key == b._key && _black == b._black && _white == b._white
+            && _turn == b._turn;
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(_board) * 2 + _turn.hashCode();
+        return Long.hashCode(_key);
+    }
+
+    /** Return the Zobrist key of this position: the exclusive or of a
+     *  fixed random number for each piece on each square, and of another
+     *  if white is to move.  Equal positions have equal keys, and the key
+     *  is kept up to date as moves are made and retracted. */
+    long key() {
+        return _key;
     }
 
     @Override
@@ -283,80 +387,135 @@ class Board {
         return out.toString();
     }
 
-    /** Return true if a move from FROM to TO is blocked by an opposing
-     *  piece or by a friendly piece on the target square. */
-    private boolean blocked(Square from, Square to) {
-        int dir = from.direction(to);
-        if (get(to) == turn()) {
-            return true;
+    /** Return true if a move in direction DIR from the square with index
+     *  FROM to the one with index TO is blocked by an opposing piece or by
+     *  a friendly piece on the target square. */
+    private boolean blocked(int from, int to, int dir) {
+        long own = _turn == BP ? _black : _white;
+        long between = RAYS[from][dir] ^ RAYS[to][dir];
+        return (own & (1L << to)) != 0
+            || ((_black | _white) & ~own & between & ~(1L << to)) != 0;
+    }
+
+    /** Add DELTA to the piece count of each line through the square with
+     *  index SQ. */
+    private void count(int sq, int delta) {
+        for (int line : SQUARE_LINES[sq]) {
+            _lineCounts[line] += delta;
         }
-        while (from != to) {
-            if (get(from) == turn().opposite()) {
-                return true;
-            }
-            from = from.moveDest(dir, 1);
+    }
+
+    /** Count the groups of each side, unless _groups is up-to-date. */
+    private void findGroups() {
+        if (!_groupsKnown) {
+            _groups[0] = countGroups(_black);
+            _groups[1] = countGroups(_white);
+            _groupsKnown = true;
         }
-        return false;
     }
 
-    /** Return the size of the as-yet unvisited cluster of squares
-     *  containing P at and adjacent to SQ.  VISITED indicates squares that
-     *  have already been processed or are in different clusters.  Update
-     *  VISITED to reflect squares counted. */
-    private int numContig(Square sq, boolean[][] visited, Piece p) {
-        if (p == EMP) {
-            return 0;
-        } else if (get(sq) != p) {
-            return 0;
-        } else if (visited[sq.col()][sq.row()]) {
-            return 0;
+    /** Record the group counts before the move about to be made, so that
+     *  retract can restore them. */
+    private void saveGroups() {
+        findGroups();
+        int ply = movesMade();
+        if (ply == _groupHistory.length) {
+            _groupHistory = Arrays.copyOf(_groupHistory, 2 * ply);
+        }
+        _groupHistory[ply] = _groups[0] << 8 | _groups[1];
+    }
+
+    /** Restore the group counts recorded before the move just retracted,
+     *  unless the board has been set up by hand since. */
+    private void restoreGroups() {
+        int ply = movesMade();
+        if (ply < _groupHistoryStart) {
+            _groupsKnown = false;
+            _groupHistoryStart = ply;
         } else {
-            int c = 1;
-            visited[sq.col()][sq.row()] = true;
-            for (Square adj: sq.adjacent()) {
-                c += numContig(adj, visited, p);
+            _groups[0] = _groupHistory[ply] >> 8;
+            _groups[1] = _groupHistory[ply] & 0xff;
+            _groupsKnown = true;
+        }
+    }
+
+    /** Return the number of groups of PIECES adjacent to the square with
+     *  index SQ, not counting a piece on SQ itself, if the squares around
+     *  SQ are enough to tell: 0 if SQ has no neighbor in PIECES and 1 if
+     *  its neighbors are connected to one another around SQ.  Otherwise,
+     *  return UNKNOWN. */
+    private static int localGroups(int sq, long pieces) {
+        long around = ADJACENT[sq] & pieces & ~(1L << sq);
+        if (around == 0) {
+            return 0;
+        }
+        long reached = around & -around;
+        long frontier = reached;
+        while (frontier != 0) {
+            long next = 0;
+            for (; frontier != 0; frontier &= frontier - 1) {
+                next |= ADJACENT[Long.numberOfTrailingZeros(frontier)];
             }
-            return c;
+            frontier = next & around & ~reached;
+            reached |= frontier;
         }
+        return reached == around ? 1 : UNKNOWN;
     }
 
-    /** Set the values of _whiteRegionSizes and _blackRegionSizes. */
-    private void computeRegions() {
-        if (_subsetsInitialized) {
-            return;
+    /** Return the number of groups of adjacent squares in PIECES, leaving
+     *  the union-find forest of those groups in _parent. */
+    private int countGroups(long pieces) {
+        int groups = 0;
+        for (long p = pieces; p != 0; p &= p - 1) {
+            int i = Long.numberOfTrailingZeros(p);
+            _parent[i] = i;
+            groups += 1;
         }
-        _whiteRegionSizes.clear();
-        _blackRegionSizes.clear();
-        boolean[][] visited = new boolean[BOARD_SIZE][BOARD_SIZE];
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            Arrays.fill(visited[i], Boolean.FALSE);
-        }
-        for (Square sq : ALL_SQUARES) {
-            int black = numContig(sq, visited, BP);
-            int white = numContig(sq, visited, WP);
-            if (black != 0) {
-                _blackRegionSizes.add(black);
-            } else if (white != 0) {
-                _whiteRegionSizes.add(white);
+        for (long p = pieces; p != 0; p &= p - 1) {
+            int i = Long.numberOfTrailingZeros(p);
+            for (long adj = ADJACENT[i] & pieces; adj != 0; adj &= adj - 1) {
+                int j = Long.numberOfTrailingZeros(adj);
+                if (j > i) {
+                    int a = find(i), b = find(j);
+                    if (a != b) {
+                        _parent[a] = b;
+                        groups -= 1;
+                    }
+                }
             }
         }
-        Collections.sort(_whiteRegionSizes, Collections.reverseOrder());
-        Collections.sort(_blackRegionSizes, Collections.reverseOrder());
-        _subsetsInitialized = true;
+        return groups;
+    }
+
+    /** Return the root of the group of the square with index SQ in
+     *  _parent, halving the path to it as it goes. */
+    private int find(int sq) {
+        while (_parent[sq] != sq) {
+            _parent[sq] = _parent[_parent[sq]];
+            sq = _parent[sq];
+        }
+        return sq;
     }
 
     /** Return the sizes of all the regions in the current union-find
-     *  structure for side S. */
+     *  structure for side S, largest first. */
     List<Integer> getRegionSizes(Piece s) {
-        computeRegions();
-        if (s == WP) {
-            return _whiteRegionSizes;
-        } else {
-            return _blackRegionSizes;
+        long pieces = s == WP ? _white : _black;
+        countGroups(pieces);
+        int[] sizes = new int[NUM_SQUARES];
+        for (long p = pieces; p != 0; p &= p - 1) {
+            sizes[find(Long.numberOfTrailingZeros(p))] += 1;
+        }
+        ArrayList<Integer> result = new ArrayList<>();
+        for (int size : sizes) {
+            if (size != 0) {
+                result.add(size);
+            }
         }
+        result.sort(Collections.reverseOrder());
+        return result;
     }
 
-
     /** The standard initial configuration for Lines of Action (bottom row
      *  first). */
     static final Piece[][] INITIAL_PIECES = {
@@ -370,8 +529,98 @@ class Board {
         { EMP, BP,  BP,  BP,  BP,  BP,  BP,  EMP }
     };
 
-    /** Current contents of the board.  Square S is at _board[S.index()]. */
-    private final Piece[] _board = new Piece[BOARD_SIZE  * BOARD_SIZE];
+    /** The squares, by index. */
+    private static final Square[] SQUARES = new Square[NUM_SQUARES];
+
+    /** RAYS[S][DIR] has a bit for every square beyond the square with
+     *  index S in direction DIR, up to the edge of the board. */
+    private static final long[][] RAYS = new long[NUM_SQUARES][8];
+
+    /** ADJACENT[S] has a bit for every square next to the square with
+     *  index S. */
+    private static final long[] ADJACENT = new long[NUM_SQUARES];
+
+    /** Seed of the random numbers used for Zobrist keys. */
+    private static final long ZOBRIST_SEED = 0x5eed_10a5L;
+
+    /** ZOBRIST[P][S] is the random number of piece P (by ordinal) on the
+     *  square with index S. */
+    private static final long[][] ZOBRIST = new long[2][NUM_SQUARES];
+
+    /** The random number included in the key iff white is to move. */
+    private static final long ZOBRIST_WHITE_TO_MOVE;
+
+    /** Marks a group count that cannot be decided locally. */
+    private static final int UNKNOWN = -1;
+
+    /** Number of rows, columns and diagonals (of either slope). */
+    private static final int NUM_LINES = 6 * BOARD_SIZE - 2;
+
+    /** LINE_IDS[S][DIR] numbers the line through the square with index S
+     *  in direction DIR (and the opposite one), from 0 to NUM_LINES - 1. */
+    private static final int[][] LINE_IDS = new int[NUM_SQUARES][8];
+
+    /** SQUARE_LINES[S] numbers the four lines through the square with
+     *  index S. */
+    private static final int[][] SQUARE_LINES = new int[NUM_SQUARES][4];
+
+    /** DESTS[S][DIR][N] is the index of the square N steps from the square
+     *  with index S in direction DIR, or -1 if that is off the board. */
+    private static final int[][][] DESTS =
+        new int[NUM_SQUARES][8][BOARD_SIZE + 1];
+
+    static {
+        for (Square s : ALL_SQUARES) {
+            SQUARES[s.index()] = s;
+            for (Square adj : s.adjacent()) {
+                ADJACENT[s.index()] |= 1L << adj.index();
+            }
+        }
+        for (Square s : ALL_SQUARES) {
+            int i = s.index();
+            for (int dir = 0; dir < 8; dir += 1) {
+                DESTS[i][dir][0] = i;
+                for (int n = 1; n <= BOARD_SIZE; n += 1) {
+                    Square t = s.moveDest(dir, n);
+                    DESTS[i][dir][n] = t == null ? -1 : t.index();
+                    if (t != null) {
+                        RAYS[i][dir] |= 1L << t.index();
+                    }
+                }
+            }
+        }
+        HashMap<Long, Integer> ids = new HashMap<>();
+        for (int i = 0; i < NUM_SQUARES; i += 1) {
+            for (int dir = 0; dir < 8; dir += 1) {
+                long line = RAYS[i][dir] | RAYS[i][(dir + 4) % 8] | (1L << i);
+                Integer id = ids.get(line);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(line, id);
+                }
+                LINE_IDS[i][dir] = id;
+                SQUARE_LINES[i][dir % 4] = id;
+            }
+        }
+        assert ids.size() == NUM_LINES;
+
+        Random random = new Random(ZOBRIST_SEED);
+        for (long[] numbers : ZOBRIST) {
+            for (int i = 0; i < NUM_SQUARES; i += 1) {
+                numbers[i] = random.nextLong();
+            }
+        }
+        ZOBRIST_WHITE_TO_MOVE = random.nextLong();
+    }
+
+    /** The Zobrist key of this position (see key()). */
+    private long _key;
+    /** Squares holding black pieces: bit S.index() for each square S. */
+    private long _black;
+    /** Squares holding white pieces: bit S.index() for each square S. */
+    private long _white;
+    /** The number of pieces on each line, indexed as by LINE_IDS. */
+    private final int[] _lineCounts = new int[NUM_LINES];
 
     /** List of all unretracted moves on this board, in order. */
     private final ArrayList<Move> _moves = new ArrayList<>();
@@ -385,11 +634,17 @@ class Board {
      *  in progress).  Use only if _winnerKnown. */
     private Piece _winner;
 
-    /** True iff subsets computation is up-to-date. */
-    private boolean _subsetsInitialized;
-
-    /** List of the sizes of continguous clusters of pieces, by color. */
-    private final ArrayList<Integer>
-        _whiteRegionSizes = new ArrayList<>(),
-        _blackRegionSizes = new ArrayList<>();
+    /** The number of groups of contiguous black and white pieces, in that
+     *  order.  Valid only if _groupsKnown. */
+    private final int[] _groups = new int[2];
+    /** True iff _groups is up-to-date. */
+    private boolean _groupsKnown;
+    /** _groupHistory[K] holds _groups, packed, as it was before the move
+     *  that made movesMade() K + 1. */
+    private int[] _groupHistory = new int[2 * DEFAULT_MOVE_LIMIT];
+    /** Entries of _groupHistory before this index predate a change made
+     *  by set or copyFrom and are stale. */
+    private int _groupHistoryStart;
+    /** Union-find forest over square indices used by countGroups. */
+    private final int[] _parent = new int[NUM_SQUARES];
 }
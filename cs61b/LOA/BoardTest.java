@@ -2,6 +2,8 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import java.util.List;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -85,6 +87,95 @@ public class BoardTest {
         assertFalse("b1-b4", b.isLegal(mv("b1-b4")));
     }
 
+    /** Test that legalMoves finds exactly the legal moves. */
+    @Test
+    public void testLegalMoves1() {
+        Board b = new Board(BOARD1, BP);
+        int count = 0;
+        for (Square from : Square.ALL_SQUARES) {
+            for (Square to : Square.ALL_SQUARES) {
+                if (from.isValidMove(to) && b.isLegal(from, to)) {
+                    count += 1;
+                }
+            }
+        }
+        assertEquals("number of legal moves", count, b.legalMoves().size());
+        for (Move move : b.legalMoves()) {
+            assertTrue(move.toString(), b.isLegal(move));
+        }
+        assertTrue("f3-d5 generated", b.legalMoves().contains(mv("f3-d5")));
+        assertFalse("white move generated", b.isLegal(mv("a2-a3")));
+    }
+
+    /** Test that generateMoves packs the same moves as legalMoves, with
+     *  captures marked. */
+    @Test
+    public void testGenerateMoves1() {
+        Board b = new Board(BOARD1, BP);
+        int[] buffer = new int[Board.MAX_MOVES + 3];
+        int end = b.generateMoves(buffer, 3);
+        assertEquals("number of moves", b.legalMoves().size(), end - 3);
+        for (int i = 3; i < end; i += 1) {
+            Move move = Move.mv(buffer[i]);
+            assertEquals(move.toString(), b.legalMoves().get(i - 3),
+                         Move.mv(buffer[i] & ~Move.CAPTURE));
+            assertEquals(move + " capture", b.get(move.getTo()) == WP,
+                         move.isCapture());
+            assertEquals(move + " packed", buffer[i], move.packed());
+        }
+        b.makeMove(buffer[3]);
+        assertEquals("move made from packed form", 1, b.movesMade());
+    }
+
+    /** Test that a capture is undone by retract. */
+    @Test
+    public void testCapture1() {
+        Board b0 = new Board(BOARD1, BP);
+        Board b1 = new Board(BOARD1, BP);
+        b1.makeMove(mv("c4-f4"));
+        assertEquals("square f4 after c4-f4", BP, b1.get(sq(5, 3)));
+        assertEquals("next move", WP, b1.turn());
+        b1.retract();
+        assertEquals("square f4 restored", WP, b1.get(sq(5, 3)));
+        assertEquals("board restored after capture", b0, b1);
+        assertEquals("equal boards hash alike", b0.hashCode(), b1.hashCode());
+    }
+
+    /** Test that line counts follow moves, captures and retractions. */
+    @Test
+    public void testCountPiece1() {
+        Board b = new Board(BOARD1, BP);
+        assertEquals("row 3", 4, b.countPiece(sq("f3"), 2));
+        assertEquals("column f", 4, b.countPiece(sq("f3"), 0));
+        b.makeMove(mv("c4-f4"));
+        b.makeMove(mv("a3-e3"));
+        checkCounts(b);
+        b.retract();
+        checkCounts(b);
+        b.retract();
+        checkCounts(b);
+        b.set(sq("d4"), WP);
+        checkCounts(b);
+    }
+
+    /** Check every line count of B against its contents. */
+    private void checkCounts(Board b) {
+        for (Square from : Square.ALL_SQUARES) {
+            for (int dir = 0; dir < 8; dir += 1) {
+                int count = 0;
+                for (Square to : Square.ALL_SQUARES) {
+                    if (b.get(to) != EMP && (to == from
+                        || from.isValidMove(to)
+                        && from.direction(to) % 4 == dir % 4)) {
+                        count += 1;
+                    }
+                }
+                assertEquals(from + " direction " + dir, count,
+                             b.countPiece(from, dir));
+            }
+        }
+    }
+
     /** Test contiguity. */
     @Test
     public void testContiguous1() {
@@ -102,6 +193,54 @@ public class BoardTest {
         assertTrue("Board 3 game over", b2.gameOver());
     }
 
+    /** Test that contiguity follows moves, retractions and set. */
+    @Test
+    public void testContiguous2() {
+        Board b = new Board(BOARD2, BP);
+        assertTrue("Board 2 black contiguous?", b.piecesContiguous(BP));
+        b.set(sq("h8"), BP);
+        assertFalse("stray black piece", b.piecesContiguous(BP));
+        assertEquals("black regions", 2, b.getRegionSizes(BP).size());
+        b.set(sq("h8"), EMP);
+        assertTrue("stray piece removed", b.piecesContiguous(BP));
+
+        Board b1 = new Board(BOARD1, BP);
+        List<Integer> black = b1.getRegionSizes(BP);
+        List<Integer> white = b1.getRegionSizes(WP);
+        b1.makeMove(mv("c4-f4"));
+        b1.makeMove(mv("a3-e3"));
+        b1.retract();
+        b1.retract();
+        assertEquals("black regions restored", black, b1.getRegionSizes(BP));
+        assertEquals("white regions restored", white, b1.getRegionSizes(WP));
+        assertFalse("Board 1 game over after retraction?", b1.gameOver());
+    }
+
+    /** Test that Zobrist keys depend only on the position. */
+    @Test
+    public void testKey1() {
+        Board b1 = new Board();
+        Board b2 = new Board();
+        long start = b1.key();
+        for (String move : new String[] {"b1-b3", "h7-f7", "c1-c3",
+                                         "h6-f6"}) {
+            b1.makeMove(mv(move));
+        }
+        for (String move : new String[] {"c1-c3", "h6-f6", "b1-b3",
+                                         "h7-f7"}) {
+            b2.makeMove(mv(move));
+        }
+        assertEquals("transposed positions", b1.key(), b2.key());
+        assertNotEquals("different positions", start, b1.key());
+        b1.retract();
+        assertNotEquals("side to move", b1.key(), b2.key());
+        b1.makeMove(mv("h6-f6"));
+        assertEquals("after retraction", b2.key(), b1.key());
+        b1.set(sq("d4"), WP, BP);
+        assertEquals("after set", new Board(b1).key(), b1.key());
+        assertNotEquals("set changes key", b2.key(), b1.key());
+    }
+
     @Test
     public void testEquals1() {
         Board b1 = new Board(BOARD1, BP);
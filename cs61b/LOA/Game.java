@@ -21,6 +21,9 @@ class Game {
 
     /** Number of milliseconds in 1 second. */
     static final int MILLISEC = 1000;
+    /** Default time allowed to an automated player for each move, in
+     *  seconds. */
+    static final double DEFAULT_MOVE_TIME = 1.0;
     /** Name of help text resource. */
     static final String HELP_FILE = "loa/HelpText.txt";
 
@@ -54,6 +57,20 @@ class Game {
         return _board;
     }
 
+    /** Return the time an automated player may spend on each move, in
+     *  seconds. */
+    double getMoveTime() {
+        return _moveTime;
+    }
+
+    /** Allow automated players SECONDS per move. */
+    void setMoveTime(double seconds) {
+        if (!(seconds > 0)) {
+            throw new IllegalArgumentException("time must be positive");
+        }
+        _moveTime = seconds;
+    }
+
     /** Quit the game. */
     private void quit() {
         System.exit(0);
@@ -104,6 +121,8 @@ class Game {
                 break;
             case "new":
                 _board.clear();
+                _white.newGame();
+                _black.newGame();
                 _playing = true;
                 break;
             case "dump":
@@ -128,6 +147,9 @@ class Game {
             case "limit":
                 limitCommand(command.group(2));
                 break;
+            case "time":
+                timeCommand(command.group(2));
+                break;
             case "?": case "help":
                 help();
                 break;
@@ -230,6 +252,16 @@ class Game {
         }
     }
 
+    /** Set the time per move of automated players according to the
+     *  number of seconds in TIME. */
+    private void timeCommand(String time) {
+        try {
+            setMoveTime(Double.parseDouble(time));
+        } catch (NumberFormatException excp) {
+            throw new IllegalArgumentException("badly formed number");
+        }
+    }
+
     /** Perform the move designated by LINE, if a valid move.  Return
      *  true iff LINE has the syntax of a move. */
     private boolean processMove(String line) {
@@ -348,4 +380,7 @@ class Game {
     /** If true, command errors cause termination with error exit
      *  code. */
     private boolean _strict;
+
+    /** Seconds an automated player may spend on each move. */
+    private double _moveTime = DEFAULT_MOVE_TIME;
 }
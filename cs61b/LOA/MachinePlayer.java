@@ -2,6 +2,7 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import static loa.Board.MAX_MOVES;
 import static loa.Piece.*;
 
 /** An automated Player.
@@ -9,11 +10,20 @@ import static loa.Piece.*;
  */
 class MachinePlayer extends Player {
 
-    /** A position-score magnitude indicating a win (for white if positive,
-     *  black if negative). */
+    /** A position-score magnitude indicating a win at the root, for the
+     *  side to move if positive.  A win N moves away is worth N less. */
     private static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
     /** A magnitude greater than a normal value. */
     private static final int INFTY = Integer.MAX_VALUE;
+    /** Base-2 logarithm of the number of entries in my transposition
+     *  table (4 MB). */
+    private static final int TABLE_LOG_SIZE = 18;
+    /** The deepest search attempted. */
+    private static final int MAX_DEPTH = 32;
+    /** The clock is read once every CLOCK_INTERVAL + 1 nodes. */
+    private static final int CLOCK_INTERVAL = 0x3ff;
+    /** Nanoseconds in one second. */
+    private static final double NANOS_PER_SECOND = 1e9;
 
     /** A new MachinePlayer with no piece or controller (intended to produce
      *  a template). */
@@ -31,7 +41,6 @@ class MachinePlayer extends Player {
         Move choice;
 
         assert side() == getGame().getBoard().turn();
-        int depth;
         choice = searchForMove();
         getGame().reportMove(choice);
         return choice.toString();
@@ -47,68 +56,178 @@ class MachinePlayer extends Player {
         return false;
     }
 
-    /** Return a move after searching the game tree to DEPTH>0 moves
-     *  from the current position. Assumes the game is not over. */
+    /** Empty the transposition table, whose entries describe positions
+     *  of the game that has ended. */
+    @Override
+    void newGame() {
+        if (_table != null) {
+            _table.clear();
+        }
+    }
+
+    /** Return a move after searching the game tree from the current
+     *  position to increasing depths until the game's time per move runs
+     *  out, keeping the move of the deepest search that finished.  Each
+     *  search first tries the principal variation of the one before it.
+     *  Assumes the game is not over. */
     private Move searchForMove() {
         Board work = new Board(getBoard());
-        int value;
         assert side() == work.turn();
-        _foundMove = null;
-        if (side() == WP) {
-            value = findMove(work, chooseDepth(), true, 1, -INFTY, INFTY);
-        } else {
-            value = findMove(work, chooseDepth(), true, -1, -INFTY, INFTY);
+        if (_table == null) {
+            _table = new TranspositionTable(TABLE_LOG_SIZE);
         }
-        return _foundMove;
+        _table.newSearch();
+        _start = System.nanoTime();
+        _budget = (long) (getGame().getMoveTime() * NANOS_PER_SECOND);
+        _rootPly = work.movesMade();
+        _prevPvLength = 0;
+        for (int depth = 1; depth <= MAX_DEPTH; depth += 1) {
+            _aborted = false;
+            _followPv = true;
+            int value = findMove(work, depth, -INFTY, INFTY);
+            if (_aborted) {
+                break;
+            }
+            _prevPvLength = _pvLength[0];
+            System.arraycopy(_pv[0], 0, _prevPv, 0, _prevPvLength);
+            if (Math.abs(value) > WINNING_VALUE - MAX_DEPTH) {
+                break;
+            }
+        }
+        return Move.mv(_prevPv[0] & ~Move.CAPTURE);
     }
 
-    /** Find a move from position BOARD and return its value, recording
-     *  the move found in _foundMove iff SAVEMOVE. The move
-     *  should have maximal value or have value > BETA if SENSE==1,
-     *  and minimal value or value < ALPHA if SENSE==-1. Searches up to
-     *  DEPTH levels.  Searching at level 0 simply returns a static estimate
-     *  of the board value and does not set _foundMove. If the game is over
-     *  on BOARD, does not set _foundMove. */
-    private int findMove(Board board, int depth, boolean saveMove,
-                         int sense, int alpha, int beta) {
-        if (board.gameOver()) {
-            return WINNING_VALUE;
+    /** Return the value of BOARD for the side to move, searching DEPTH
+     *  levels below it by negamax with principal variation search: the
+     *  first move is searched with the window ALPHA..BETA and the rest
+     *  with a null window just above ALPHA, searching again with the full
+     *  window only a move that beats ALPHA.  The result is fail-soft: a
+     *  value <= ALPHA is an upper bound on the true value, a value >=
+     *  BETA a lower bound.  A won position is worth WINNING_VALUE less
+     *  the number of moves from the root, so quicker wins score higher.
+     *  Searching at level 0 simply returns a static estimate.
+     *
+     *  The best line found is left in _pv.  The moves of each level are
+     *  generated into their own slice of _moveBuffer, so that searching
+     *  allocates nothing.  Results are kept in _table: a stored bound
+     *  from a search at least as deep may cut the search off, and a
+     *  stored best move is searched first, after the previous principal
+     *  variation while still following it.  Once the deadline has passed
+     *  (in any search but the first), sets _aborted and returns a
+     *  meaningless value. */
+    private int findMove(Board board, int depth, int alpha, int beta) {
+        int ply = board.movesMade() - _rootPly;
+        _pvLength[ply] = ply;
+        Piece winner = board.winner();
+        if (winner == EMP) {
+            return 0;
+        } else if (winner != null) {
+            int win = WINNING_VALUE - ply;
+            return winner == board.turn() ? win : -win;
         } else if (depth == 0) {
-            return heuristic(board);
+            return board.turn() == WP ? heuristic(board) : -heuristic(board);
+        }
+        _nodes += 1;
+        if ((_nodes & CLOCK_INTERVAL) == 0 && _prevPvLength > 0
+            && System.nanoTime() - _start >= _budget) {
+            _aborted = true;
+            return 0;
         }
-        int bestScore = 0;
-        for (Move move : board.legalMoves()) {
-            if (saveMove && _foundMove == null) {
-                _foundMove = move;
+        long key = board.key();
+        long entry = _table.probe(key);
+        if (ply > 0 && entry != TranspositionTable.MISS
+            && TranspositionTable.depth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                || bound == TranspositionTable.LOWER && score >= beta
+                || bound == TranspositionTable.UPPER && score <= alpha) {
+                return score;
             }
+        }
+        int alpha0 = alpha;
+        int bestScore = -INFTY;
+        int bestMove = 0;
+        int start = ply * MAX_MOVES;
+        int end = board.generateMoves(_moveBuffer, start);
+        boolean onPv = _followPv && ply < _prevPvLength;
+        moveToFront(TranspositionTable.move(entry), start, end);
+        if (onPv) {
+            moveToFront(_prevPv[ply], start, end);
+        }
+        for (int i = start; i < end; i += 1) {
+            int move = _moveBuffer[i];
+            _followPv = onPv && move == _prevPv[ply];
             board.makeMove(move);
-            int score = findMove(board, depth - 1, false, -sense, alpha, beta);
-            board.retract();
-            if (sense == 1 && score > bestScore
-                    || sense == -1 && score < bestScore) {
-                bestScore = score;
-                if (saveMove) {
-                    _foundMove = move;
+            int score;
+            if (i == start) {
+                score = -findMove(board, depth - 1, -beta, -alpha);
+            } else {
+                score = -findMove(board, depth - 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta && !_aborted) {
+                    score = -findMove(board, depth - 1, -beta, -alpha);
                 }
             }
-            if (sense == 1) {
-                alpha = Math.max(score, alpha);
-            } else {
-                beta = Math.min(score, beta);
+            board.retract();
+            if (_aborted) {
+                return 0;
             }
-            if (alpha >= beta) {
-                break;
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    _pv[ply][ply] = move;
+                    System.arraycopy(_pv[ply + 1], ply + 1, _pv[ply],
+                                     ply + 1, _pvLength[ply + 1] - ply - 1);
+                    _pvLength[ply] = _pvLength[ply + 1];
+                }
+                if (score >= beta) {
+                    break;
+                }
             }
         }
+        int bound = bestScore <= alpha0 ? TranspositionTable.UPPER
+            : bestScore >= beta ? TranspositionTable.LOWER
+            : TranspositionTable.EXACT;
+        _table.store(key, depth, bound, toTable(bestScore, ply), bestMove);
         return bestScore;
     }
 
+    /** Return SCORE, found PLY moves from the root, as stored in _table:
+     *  win scores count moves from the position rather than the root. */
+    private static int toTable(int score, int ply) {
+        if (score > WINNING_VALUE - MAX_DEPTH) {
+            return score + ply;
+        } else if (score < -WINNING_VALUE + MAX_DEPTH) {
+            return score - ply;
+        }
+        return score;
+    }
 
-    /** Return a search depth for the current position. */
-    private int chooseDepth() {
-        return 3;
+    /** Return the score stored in _table as SCORE for a position PLY
+     *  moves from the root.  The inverse of toTable. */
+    private static int fromTable(int score, int ply) {
+        if (score > WINNING_VALUE - MAX_DEPTH) {
+            return score - ply;
+        } else if (score < -WINNING_VALUE + MAX_DEPTH) {
+            return score + ply;
+        }
+        return score;
     }
 
+    /** Move the packed move MOVE, if it is among the moves in
+     *  _moveBuffer[START .. END-1], to START. */
+    private void moveToFront(int move, int start, int end) {
+        for (int i = start; i < end; i += 1) {
+            if (_moveBuffer[i] == move) {
+                System.arraycopy(_moveBuffer, start, _moveBuffer, start + 1,
+                                 i - start);
+                _moveBuffer[start] = move;
+                return;
+            }
+        }
+    }
 
     /** Calculate the heuristic value for the current position.
      * @return the heuristic value of the board
@@ -148,7 +267,34 @@ class MachinePlayer extends Player {
         return Square.sq((columnSum / count), (rowSum / count));
     }
 
-    /** Used to convey moves discovered by findMove. */
-    private Move _foundMove;
+    /** Packed moves being searched, MAX_MOVES for each ply. */
+    private final int[] _moveBuffer = new int[(MAX_DEPTH + 1) * MAX_MOVES];
+
+    /** _pv[P][P .. _pvLength[P]-1] is the best line found from ply P of
+     *  the current search. */
+    private final int[][] _pv = new int[MAX_DEPTH + 1][MAX_DEPTH + 1];
+    /** Ends of the lines in _pv. */
+    private final int[] _pvLength = new int[MAX_DEPTH + 1];
+    /** The principal variation of the last search that finished. */
+    private final int[] _prevPv = new int[MAX_DEPTH + 1];
+    /** Length of _prevPv. */
+    private int _prevPvLength;
+    /** True iff the node being entered was reached by following _prevPv. */
+    private boolean _followPv;
+
+    /** Number of nodes searched. */
+    private long _nodes;
+    /** When, by System.nanoTime(), the current search started. */
+    private long _start;
+    /** Nanoseconds the current search may take.  Elapsed time is compared
+     *  with this rather than computing a deadline, which could overflow. */
+    private long _budget;
+    /** True iff the current search ran out of time. */
+    private boolean _aborted;
+    /** Value of movesMade() at the root of the current search. */
+    private int _rootPly;
+
+    /** Results of earlier searches, shared by all my searches. */
+    private TranspositionTable _table;
 
 }
@@ -36,7 +36,8 @@ public class Main {
     public static void main(String... args) {
         CommandArgs options =
             new CommandArgs("--debug=(\\d+){0,1} --display{0,1} --strict{0,1} "
-                            + "--log={0,1} --=(.*){0,2}",
+                            + "--log={0,1} --time=(\\d+(\\.\\d*)?){0,1} "
+                            + "--=(.*){0,2}",
                             args);
 
         if (!options.ok()) {
@@ -75,6 +76,14 @@ public class Main {
         }
 
         Game game = getGame(options);
+        if (options.contains("--time")) {
+            try {
+                game.setMoveTime(Double.parseDouble(
+                                     options.getFirst("--time")));
+            } catch (IllegalArgumentException excp) {
+                usage();
+            }
+        }
         if (!options.contains("--display")) {
             System.out.printf("Lines of Action.  Version %s.%n"
                               + "Type ? for help.%n", VERSION);
@@ -51,6 +51,18 @@ final class Move {
         return mv(from, to, false);
     }
 
+    /** Return the move whose packed() value is PACKED. */
+    static Move mv(int packed) {
+        return _moves[packed & SQUARE_MASK][(packed >> TO_SHIFT) & SQUARE_MASK]
+            [(packed & CAPTURE) != 0 ? 1 : 0];
+    }
+
+    /** Return the int packing of a move from the square with index FROM
+     *  to the one with index TO, capturing iff CAPTURE. */
+    static int pack(int from, int to, boolean capture) {
+        return from | to << TO_SHIFT | (capture ? CAPTURE : 0);
+    }
+
     /** Return the Square moved from. */
     Square getFrom() {
         return _from;
@@ -71,6 +83,14 @@ final class Move {
         return _captureMove;
     }
 
+    /** Return this Move packed into an int: the index of getFrom() in the
+     *  low six bits, the index of getTo() in the next six and CAPTURE iff
+     *  isCapture().  Searches keep moves in this form to avoid allocating
+     *  lists of Moves. */
+    int packed() {
+        return pack(_from.index(), _to.index(), _capture);
+    }
+
     /** Return the length of this move (number of squares moved). */
     int length() {
         return _from.distance(_to);
@@ -89,6 +109,13 @@ final class Move {
         _captureMove = _capture ? this : new Move(from, to, true);
     }
 
+    /** Bit of a packed move that marks a capture. */
+    static final int CAPTURE = 1 << 12;
+    /** Position of the destination index in a packed move. */
+    private static final int TO_SHIFT = 6;
+    /** Mask of a square index in a packed move. */
+    private static final int SQUARE_MASK = (1 << TO_SHIFT) - 1;
+
     /** Starting and destination Squares. */
     private final Square _from, _to;
     /** True iff this Move records a capture. */
@@ -34,6 +34,11 @@ public abstract class Player {
         return _game;
     }
 
+    /** Forget whatever I learned during the previous game, as when a new
+     *  game starts.  By default, there is nothing to forget. */
+    void newGame() {
+    }
+
     /** Return true iff I am a manual (human or non-automated) player. */
     abstract boolean isManual();
 
@@ -0,0 +1,148 @@
+package loa;
+
+import java.util.Arrays;
+
+/** A fixed-size table of search results, indexed by Zobrist key, kept in
+ *  one array of longs so that probing and storing allocate nothing.
+ *
+ *  The table is divided into buckets of two entries of two longs each:
+ *  the position's key, and its data packed as described at DATA_SCORE.
+ *  The first entry of a bucket keeps the deepest result of the current
+ *  search and is replaced only by one at least as deep (or by any result
+ *  once it is left over from an earlier search); the second entry takes
+ *  every result the first refuses.
+ *  @author Tess
+ */
+final class TranspositionTable {
+
+    /** Bound type of a score that is the exact value of its position. */
+    static final int EXACT = 1;
+    /** Bound type of a score that is a lower bound on the value (the
+     *  search failed high). */
+    static final int LOWER = 2;
+    /** Bound type of a score that is an upper bound on the value (the
+     *  search failed low). */
+    static final int UPPER = 3;
+
+    /** The value probe returns when there is no entry for a key. */
+    static final long MISS = 0;
+
+    /** A table with 2**LOGSIZE entries. */
+    TranspositionTable(int logSize) {
+        _table = new long[2 << logSize];
+        _mask = (1 << (logSize - 1)) - 1;
+    }
+
+    /** Forget every entry. */
+    void clear() {
+        Arrays.fill(_table, 0);
+        _generation = 0;
+    }
+
+    /** Start a new search.  Entries stored by earlier searches stay
+     *  available but may be replaced by shallower ones. */
+    void newSearch() {
+        _generation = (_generation + 1) & GENERATION_MASK;
+    }
+
+    /** Return the data stored for the position whose Zobrist key is KEY,
+     *  or MISS if there is none.  Use the static methods of this class to
+     *  unpack it. */
+    long probe(long key) {
+        int i = bucket(key);
+        if (_table[i] == key && _table[i + 1] != MISS) {
+            return _table[i + 1];
+        } else if (_table[i + 2] == key && _table[i + 3] != MISS) {
+            return _table[i + 3];
+        }
+        return MISS;
+    }
+
+    /** Record that searching the position with Zobrist key KEY to DEPTH
+     *  gave SCORE, a bound of type BOUND (EXACT, LOWER or UPPER), with
+     *  best move MOVE (packed as by Move.packed(), or 0 if none). */
+    void store(long key, int depth, int bound, int score, int move) {
+        long data = pack(depth, bound, score, move);
+        int i = bucket(key);
+        long old = _table[i + 1];
+        if (_table[i] == key || old == MISS
+            || generation(old) != _generation || depth >= depth(old)) {
+            if (_table[i] == key && move == 0) {
+                data |= (long) move(old) << DATA_MOVE;
+            }
+            _table[i] = key;
+            _table[i + 1] = data;
+        } else {
+            _table[i + 2] = key;
+            _table[i + 3] = data;
+        }
+    }
+
+    /** Return the search depth of DATA. */
+    static int depth(long data) {
+        return (int) (data >>> DATA_DEPTH) & DEPTH_MASK;
+    }
+
+    /** Return the bound type (EXACT, LOWER or UPPER) of DATA. */
+    static int bound(long data) {
+        return (int) (data >>> DATA_BOUND) & BOUND_MASK;
+    }
+
+    /** Return the score of DATA. */
+    static int score(long data) {
+        return (int) data;
+    }
+
+    /** Return the packed best move of DATA, or 0 if none. */
+    static int move(long data) {
+        return (int) (data >>> DATA_MOVE) & MOVE_MASK;
+    }
+
+    /** Return the data word for DEPTH, BOUND, SCORE and MOVE, stamped
+     *  with the current generation. */
+    private long pack(int depth, int bound, int score, int move) {
+        return (score & 0xffffffffL)
+            | (long) Math.min(depth, DEPTH_MASK) << DATA_DEPTH
+            | (long) bound << DATA_BOUND
+            | (long) _generation << DATA_GENERATION
+            | (long) move << DATA_MOVE;
+    }
+
+    /** Return the generation of DATA. */
+    private static int generation(long data) {
+        return (int) (data >>> DATA_GENERATION) & GENERATION_MASK;
+    }
+
+    /** Return the index of the first long of the bucket of KEY. */
+    private int bucket(long key) {
+        return ((int) (key ^ key >>> 32) & _mask) << 2;
+    }
+
+    /* A data word holds the score in bits 0-31, then the depth, the bound
+     * type, the generation and the move.  The bound type is never 0, so
+     * neither is a stored data word. */
+
+    /** Position of the depth in a data word. */
+    private static final int DATA_DEPTH = 32;
+    /** Mask of the depth. */
+    private static final int DEPTH_MASK = 0xff;
+    /** Position of the bound type in a data word. */
+    private static final int DATA_BOUND = 40;
+    /** Mask of the bound type. */
+    private static final int BOUND_MASK = 0x3;
+    /** Position of the generation in a data word. */
+    private static final int DATA_GENERATION = 42;
+    /** Mask of the generation. */
+    private static final int GENERATION_MASK = 0x3f;
+    /** Position of the move in a data word. */
+    private static final int DATA_MOVE = 48;
+    /** Mask of the move. */
+    private static final int MOVE_MASK = 0x1fff;
+
+    /** The buckets. */
+    private final long[] _table;
+    /** Mask selecting a bucket number from a key. */
+    private final int _mask;
+    /** The generation of the current search. */
+    private int _generation;
+}
@@ -0,0 +1,82 @@
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.TranspositionTable.*;
+
+/** Tests of the TranspositionTable class.
+ *  @author Tess
+ */
+public class TranspositionTableTest {
+
+    /** Log of the size of the tables tested: 8 buckets, so keys that
+     *  differ by a multiple of 8 share a bucket. */
+    static final int LOG_SIZE = 4;
+
+    @Test
+    public void testRoundTrip() {
+        TranspositionTable table = new TranspositionTable(LOG_SIZE);
+        table.newSearch();
+        assertEquals(MISS, table.probe(1));
+        table.store(1, 5, LOWER, -123, 0x1abc);
+        table.store(2, 0, UPPER, Integer.MAX_VALUE, 0);
+        long data = table.probe(1);
+        assertEquals(5, depth(data));
+        assertEquals(LOWER, bound(data));
+        assertEquals(-123, score(data));
+        assertEquals(0x1abc, move(data));
+        data = table.probe(2);
+        assertEquals(0, depth(data));
+        assertEquals(UPPER, bound(data));
+        assertEquals(Integer.MAX_VALUE, score(data));
+        assertEquals(0, move(data));
+        assertEquals(MISS, table.probe(3));
+        table.clear();
+        assertEquals(MISS, table.probe(1));
+    }
+
+    @Test
+    public void testReplacement() {
+        TranspositionTable table = new TranspositionTable(LOG_SIZE);
+        table.newSearch();
+        table.store(1, 6, EXACT, 1, 0);
+        table.store(9, 3, EXACT, 9, 0);
+        assertEquals(6, depth(table.probe(1)));
+        assertEquals(3, depth(table.probe(9)));
+
+        table.store(17, 2, EXACT, 17, 0);
+        assertEquals("second entry always replaced",
+                     MISS, table.probe(9));
+        assertEquals(6, depth(table.probe(1)));
+        assertEquals(2, depth(table.probe(17)));
+
+        table.store(25, 7, EXACT, 25, 0);
+        assertEquals("first entry replaced by a deeper result",
+                     MISS, table.probe(1));
+        assertEquals(7, depth(table.probe(25)));
+        assertEquals(2, depth(table.probe(17)));
+
+        table.newSearch();
+        table.store(33, 1, EXACT, 33, 0);
+        assertEquals("first entry replaced when left from an earlier "
+                     + "search", MISS, table.probe(25));
+        assertEquals(1, depth(table.probe(33)));
+        assertEquals(2, depth(table.probe(17)));
+    }
+
+    @Test
+    public void testKeepOldMove() {
+        TranspositionTable table = new TranspositionTable(LOG_SIZE);
+        table.newSearch();
+        table.store(1, 4, EXACT, 10, 77);
+        table.store(1, 5, UPPER, 20, 0);
+        long data = table.probe(1);
+        assertEquals(77, move(data));
+        assertEquals(5, depth(data));
+        assertEquals(UPPER, bound(data));
+        assertEquals(20, score(data));
+        table.store(1, 6, LOWER, 30, 88);
+        assertEquals(88, move(table.probe(1)));
+    }
+}